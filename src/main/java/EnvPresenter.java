@@ -13,18 +13,17 @@ import main.java.design.DesignedUtils;
 import main.java.design.DesignedWindow;
 import main.java.environment.Room;
 import main.java.simulation.SimulationManager;
-import main.java.view.FieldView;
+import main.java.view.MapView;
 import main.java.view.RobotView;
 import main.java.view.ControlView;
 import main.java.common.Observable.Observer;
 import main.java.common.Observable;
 import main.java.robot.ControlledRobot;
-import main.java.robot.AutonomousRobot;
 
 import java.awt.*;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -37,8 +36,8 @@ import javax.swing.*;
  */
 public class EnvPresenter implements Observer {
     private Environment env;
-    private final Map<Position, FieldView> fields;
-    private final List<RobotView> robots;
+    private final Map<Integer, RobotView> robots;
+    private MapView mapView;
     private JFrame frame;
     private ControlView controlView;
     private Robot activeRobot;
@@ -49,8 +48,7 @@ public class EnvPresenter implements Observer {
      */
     public EnvPresenter() {
         this.env = null;
-        this.fields = new HashMap<>();
-        this.robots = new ArrayList<>();
+        this.robots = new LinkedHashMap<>();
     }
 
     /**
@@ -69,18 +67,21 @@ public class EnvPresenter implements Observer {
      */
     public void setEnvironment(Environment newEnv) {
         if (this.env instanceof Room) {
+            simulationManager.pauseSimulation();
             List<Robot> oldRobots = new ArrayList<>(env.getRobots());
             for (Robot robot : oldRobots) {
-                if (robot instanceof AutonomousRobot) {
-                    ((AutonomousRobot)robot).stopMovement();
-                }
                 env.removeRobot(robot);
             }
             (this.env).clearObstacles();
         }
+        if (simulationManager != null) {
+            simulationManager.removeObserver(this);
+            SimulationManager.release(this.env);
+        }
 
         this.env = newEnv;
-        this.fields.clear();
+        this.simulationManager = SimulationManager.getInstance(newEnv);
+        disposeMapView();
         this.robots.clear();
 
         SwingUtilities.invokeLater(() -> {
@@ -90,7 +91,6 @@ public class EnvPresenter implements Observer {
             setActiveFirstRobot();
         });
 
-        this.simulationManager.setEnvironment(newEnv);
         if (frame != null) {
             frame.dispose();
         }
@@ -120,13 +120,8 @@ public class EnvPresenter implements Observer {
             (env).clearRobots();
         }
 
-        fields.forEach((pos, field) -> {
-            field.removeComponent();
-            frame.getContentPane().remove(field);
-        });
-        fields.clear();
+        disposeMapView();
 
-        robots.forEach(robotView -> robotView.getModel().removeObserver(this));
         robots.clear();
 
         frame.getContentPane().removeAll();
@@ -138,15 +133,9 @@ public class EnvPresenter implements Observer {
      * Stops the simulation and removes all components from the frame.
      */
     public void deleteSimulation() {
-        for (RobotView robotView : robots) {
-            Robot robot = robotView.getModel();
-            if (robot instanceof AutonomousRobot) {
-                ((AutonomousRobot) robot).stopMovement();
-            }
-        }
+        simulationManager.pauseSimulation();
 
-        fields.forEach((position, fieldView) -> fieldView.removeComponent());
-        fields.clear();
+        disposeMapView();
 
         frame.getContentPane().removeAll();
         frame.revalidate();
@@ -163,42 +152,25 @@ public class EnvPresenter implements Observer {
         simulationManager = SimulationManager.getInstance(env);
         simulationManager.addObserver(this);
 
-        GridLayout gridLayout = new GridLayout(env.getRows(), env.getCols());
-        JPanel gridPanel = new JPanel(gridLayout);
-
-        fields.clear();
+        disposeMapView();
+        mapView = new MapView(env, this);
         robots.clear();
 
-        for (int row = 0; row < env.getRows(); ++row) {
-            for (int col = 0; col < env.getCols(); ++col) {
-                Position position = new Position(row, col);
-                FieldView fieldView = new FieldView(env, position, this);
-                fields.put(position, fieldView);
-                gridPanel.add(fieldView);
-            }
-        }
-
         if (controlView == null) {
             controlView = new ControlView(this, null);
         }
-        controlView.setRobots(env.getRobots());
 
         for (Robot robot : env.getRobots()) {
-            RobotView robotView = new RobotView(this, robot);
-            robots.add(robotView);
-            FieldView field = fields.get(robot.getPosition());
-            if (field != null) {
-                field.addComponent(robotView);
-            }
+            robots.put(robot.getId(), new RobotView(this, robot));
         }
 
-        if (!robots.isEmpty()) {
-            Robot firstRobot = robots.get(0).getModel();
+        if (!env.getRobots().isEmpty()) {
+            Robot firstRobot = env.getRobots().get(0);
             setActiveRobot(firstRobot);
             controlView.setActiveRobot(firstRobot);
         }
 
-        frame.getContentPane().add(gridPanel, BorderLayout.CENTER);
+        frame.getContentPane().add(mapView, BorderLayout.CENTER);
         frame.getContentPane().add(controlView, BorderLayout.SOUTH);
 
         frame.setLocationRelativeTo(null);
@@ -222,13 +194,40 @@ public class EnvPresenter implements Observer {
     }
 
     /**
-     * Retrieves the field view at the specified position.
+     * Retrieves the simulation manager of the current environment.
+     *
+     * @return The simulation manager, or null if no environment is loaded.
+     */
+    public SimulationManager getSimulationManager() {
+        return this.simulationManager;
+    }
+
+    /**
+     * Retrieves the view showing the map of the environment.
+     *
+     * @return The map view, or null if the views are not initialized.
+     */
+    public MapView getMapView() {
+        return this.mapView;
+    }
+
+    /**
+     * Retrieves the active robot.
      *
-     * @param var1 The position to check.
-     * @return The field view at the specified position.
+     * @return The active robot, or null if no robot is active.
      */
-    public FieldView fieldAt(Position var1) {
-        return this.fields.get(var1);
+    public Robot getActiveRobot() {
+        return this.activeRobot;
+    }
+
+    /**
+     * Detaches the current map view from the environment.
+     */
+    private void disposeMapView() {
+        if (mapView != null) {
+            mapView.dispose();
+            mapView = null;
+        }
     }
 
     /**
@@ -292,39 +291,9 @@ public class EnvPresenter implements Observer {
      */
     public void update(Observable o) {
         if (o instanceof SimulationManager) {
-            fields.clear();
+            // the robots were replaced by the restored ones, the map view itself stays
             robots.clear();
-
-            frame.getContentPane().removeAll();
-
-            GridLayout gridLayout = new GridLayout(env.getRows(), env.getCols());
-            JPanel gridPanel = new JPanel(gridLayout);
-
-            for (int row = 0; row < env.getRows(); ++row) {
-                for (int col = 0; col < env.getCols(); ++col) {
-                    Position position = new Position(row, col);
-                    FieldView fieldView = new FieldView(env, position, this);
-                    fields.put(position, fieldView);
-                    gridPanel.add(fieldView);
-                }
-            }
-
-            env.getRobots().forEach(robot -> {
-                RobotView robotView = new RobotView(this, robot);
-                robots.add(robotView);
-                FieldView field = fields.get(robot.getPosition());
-                if (field != null) {
-                    field.addComponent(robotView);
-                }
-            });
-
-            if (frame instanceof DesignedWindow) {
-                JPanel titleBar = ((DesignedWindow) frame).getTitleBar();
-                frame.getContentPane().add(titleBar, BorderLayout.NORTH);
-            }
-
-            frame.getContentPane().add(gridPanel, BorderLayout.CENTER);
-            frame.getContentPane().add(controlView, BorderLayout.SOUTH);
+            env.getRobots().forEach(robot -> robots.put(robot.getId(), new RobotView(this, robot)));
 
             // Set the active robot
             Robot activeRobot = simulationManager.getActiveRobot();
@@ -342,8 +311,10 @@ public class EnvPresenter implements Observer {
      * Refreshes the graphical user interface for the environment.
      */
     public void refreshGui() {
-        fields.values().forEach(FieldView::repaint);
-        robots.forEach(RobotView::refreshView);
+        robots.values().forEach(RobotView::refreshView);
+        if (mapView != null) {
+            mapView.refresh();
+        }
     }
 
     /**
@@ -353,14 +324,12 @@ public class EnvPresenter implements Observer {
      */
     public void setActiveRobot(Robot robot) {
         if (robot instanceof ControlledRobot) {
+            if (activeRobot instanceof ControlledRobot && activeRobot != robot) {
+                ((ControlledRobot) activeRobot).setActive(false);
+            }
             this.activeRobot = robot;
             ((ControlledRobot) robot).setActive(true);
-
-            for (Robot otherRobot : env.getRobots()) {
-                if (otherRobot != robot && otherRobot instanceof ControlledRobot) {
-                    ((ControlledRobot) otherRobot).setActive(false);
-                }
-            }
+            simulationManager.setActiveRobot(robot);
 
             refreshGui();
         }
@@ -373,7 +342,7 @@ public class EnvPresenter implements Observer {
      * @return true if the specified robot is active, false otherwise.
      */
     public boolean isActive(Robot robot) {
-        return robot.equals(activeRobot);
+        return activeRobot != null && robot.getId() == activeRobot.getId();
     }
 
     /**
@@ -382,12 +351,10 @@ public class EnvPresenter implements Observer {
      * @param pos The position of the robot to set as active.
      */
     public void setActiveRobotByPosition(Position pos) {
-        for (RobotView robotView : robots) {
-            if (robotView.getModel().getPosition().equals(pos) && robotView.getModel() instanceof ControlledRobot) {
-                setActiveRobot(robotView.getModel());
-                controlView.setActiveRobot(robotView.getModel());
-                break;
-            }
+        Robot robot = env.getRobotAt(pos);
+        if (robot instanceof ControlledRobot) {
+            setActiveRobot(robot);
+            controlView.setActiveRobot(robot);
         }
         refreshGui();
     }
@@ -398,13 +365,7 @@ public class EnvPresenter implements Observer {
      * @param robot The robot to add to the view.
      */
     public void addRobotView(Robot robot) {
-        RobotView robotView = new RobotView(this, robot);
-        this.robots.add(robotView);
-        FieldView field = this.fields.get(robot.getPosition());
-        if (field != null) {
-            field.addComponent(robotView);
-            field.repaint();
-        }
+        this.robots.put(robot.getId(), new RobotView(this, robot));
         refreshGui();
     }
 
@@ -0,0 +1,80 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.behaviour;
+
+/**
+ * Decides what a group of robots does in one tick.
+ * All robots with the same behaviour are decided together: their state comes in as flat arrays
+ * and one intent per robot goes out, so a behaviour is a single loop over plain arrays without any robot objects.
+ * The simulation manager then carries out the intents one robot after another, checking the cells again,
+ * because robots deciding in the same tick may want the same cell.
+ * <p>
+ * An intent is a single int: 0 to stay, a positive number of steps to move forward,
+ * or a turn to an absolute angle created by {@link #turn(int)}.
+ */
+public interface Behaviour {
+    int STAY = 0;
+
+    /**
+     * Decides the intents of a group of robots.
+     * Only the first count entries of the arrays are valid, the arrays must not be modified except for the intents.
+     *
+     * @param count   The number of robots in the group
+     * @param ids     The identifiers of the robots
+     * @param rows    The rows of the robots
+     * @param cols    The columns of the robots
+     * @param angles  The angles of the robots
+     * @param speeds  The most cells every robot reaches in this tick, counting a cell it enters only partly
+     * @param context The surroundings of the robots at the start of their turn
+     * @param intents Receives the intent of every robot
+     */
+    void decide(int count, int[] ids, int[] rows, int[] cols, int[] angles, int[] speeds, BehaviourContext context, int[] intents);
+
+    /**
+     * Releases the resources of the behaviour, called when the simulation is released
+     */
+    default void dispose() {
+    }
+
+    /**
+     * Creates the intent of moving forward
+     *
+     * @param steps The number of steps, 0 stays
+     * @return The intent
+     */
+    static int move(int steps) {
+        return Math.max(steps, STAY);
+    }
+
+    /**
+     * Creates the intent of turning
+     *
+     * @param angle The angle to turn to, a multiple of 45 between 0 and 315
+     * @return The intent
+     */
+    static int turn(int angle) {
+        return -1 - angle;
+    }
+
+    /**
+     * Checks whether the intent is a turn
+     *
+     * @param intent The intent
+     * @return true if the robot wants to turn, false if it wants to move or stay
+     */
+    static boolean isTurn(int intent) {
+        return intent < 0;
+    }
+
+    /**
+     * Returns the angle a turn intent turns to
+     *
+     * @param intent The turn intent
+     * @return The angle
+     */
+    static int angleOf(int intent) {
+        return -1 - intent;
+    }
+}
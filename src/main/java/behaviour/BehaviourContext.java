@@ -0,0 +1,175 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.behaviour;
+
+import main.java.common.ObstacleGrid;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Surroundings of the robots for one tick of the behaviours: the obstacles, the fields taken by robots,
+ * the random generator and the tick. Fields taken by robots are kept in a bitset which is reused from tick to tick,
+ * only the bits set in the previous tick are cleared.
+ */
+public final class BehaviourContext {
+    private static final int[] ROW_STEPS = {-1, -1, 0, 1, 1, 1, 0, -1}; // index is the angle divided by 45
+    private static final int[] COL_STEPS = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    private final int rows;
+    private final int cols;
+    private final long[] occupied;
+    private int[] taken = new int[64]; // fields set in the occupied bitset
+    private int takenCount;
+    private ObstacleGrid obstacles;
+    private Random random;
+    private long tick;
+
+    /**
+     * Creates the context for an environment of the given size
+     *
+     * @param rows The number of rows of the environment
+     * @param cols The number of columns of the environment
+     */
+    public BehaviourContext(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.occupied = new long[(int) (((long) rows * cols + 63) >>> 6)];
+    }
+
+    /**
+     * Starts a new tick, forgetting the robots of the previous one
+     *
+     * @param obstacles The obstacles at the start of the tick
+     * @param random    The random generator of the simulation
+     * @param tick      The tick
+     */
+    public void reset(ObstacleGrid obstacles, Random random, long tick) {
+        for (int i = 0; i < takenCount; i++) {
+            occupied[taken[i] >>> 6] = 0;
+        }
+        takenCount = 0;
+        this.obstacles = obstacles;
+        this.random = random;
+        this.tick = tick;
+    }
+
+    /**
+     * Marks the field as taken by a robot
+     *
+     * @param row The row of the field
+     * @param col The column of the field
+     */
+    public void occupy(int row, int col) {
+        int index = row * cols + col;
+        if (takenCount == taken.length) {
+            taken = Arrays.copyOf(taken, taken.length * 2);
+        }
+        taken[takenCount++] = index;
+        occupied[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Checks whether a robot can enter the field: it is inside the environment, without an obstacle and without a robot
+     *
+     * @param row The row of the field
+     * @param col The column of the field
+     * @return true if the field is free, false otherwise
+     */
+    public boolean isFree(int row, int col) {
+        if (row < 0 || col < 0 || row >= rows || col >= cols || obstacles.get(row, col)) {
+            return false;
+        }
+        int index = row * cols + col;
+        return (occupied[index >>> 6] & 1L << index) == 0;
+    }
+
+    /**
+     * Checks whether the field blocks the way for good: it is outside the environment or an obstacle.
+     * Unlike {@link #isFree(int, int)} robots are not taken into account, since they move away.
+     *
+     * @param row The row of the field
+     * @param col The column of the field
+     * @return true if the field is a wall, false otherwise
+     */
+    public boolean isWall(int row, int col) {
+        return row < 0 || col < 0 || row >= rows || col >= cols || obstacles.get(row, col);
+    }
+
+    /**
+     * Returns the number of free fields in front of a robot, up to the given limit
+     *
+     * @param row   The row of the robot
+     * @param col   The column of the robot
+     * @param angle The angle of the robot
+     * @param limit The most steps to count
+     * @return The number of steps the robot can move straight
+     */
+    public int freeSteps(int row, int col, int angle, int limit) {
+        int dRow = rowStep(angle);
+        int dCol = colStep(angle);
+        int steps = 0;
+        while (steps < limit && isFree(row + dRow * (steps + 1), col + dCol * (steps + 1))) {
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Returns the row difference of one step in the direction of the angle
+     *
+     * @param angle The angle, a multiple of 45
+     * @return The row difference
+     */
+    public static int rowStep(int angle) {
+        return ROW_STEPS[Math.floorMod(angle, 360) / 45];
+    }
+
+    /**
+     * Returns the column difference of one step in the direction of the angle
+     *
+     * @param angle The angle, a multiple of 45
+     * @return The column difference
+     */
+    public static int colStep(int angle) {
+        return COL_STEPS[Math.floorMod(angle, 360) / 45];
+    }
+
+    /**
+     * Returns the number of rows of the environment
+     *
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the environment
+     *
+     * @return The number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the random generator of the simulation, it is seeded in the deterministic mode
+     *
+     * @return The random generator
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns the tick being decided
+     *
+     * @return The tick
+     */
+    public long getTick() {
+        return tick;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.behaviour;
+
+import main.java.common.Environment;
+import main.java.common.Position;
+import main.java.navigation.FlowField;
+
+/**
+ * Heads to one goal cell along the flow field of the goal.
+ * A robot first faces the direction of the field and then moves as far as the field points the same way.
+ * A robot at the goal, or one that cannot reach it, stays where it is.
+ */
+public class GoalSeeking implements Behaviour {
+    private final FlowField field;
+
+    /**
+     * Creates the behaviour and computes the flow field of the goal
+     *
+     * @param env  The environment the robots move in
+     * @param goal The goal cell
+     */
+    public GoalSeeking(Environment env, Position goal) {
+        this.field = new FlowField(env, goal);
+    }
+
+    @Override
+    public void decide(int count, int[] ids, int[] rows, int[] cols, int[] angles, int[] speeds, BehaviourContext context, int[] intents) {
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            int col = cols[i];
+            int dir = field.angleAt(row, col);
+            if (dir < 0) {
+                intents[i] = STAY;
+            } else if (dir != angles[i]) {
+                intents[i] = Behaviour.turn(dir);
+            } else {
+                int steps = 0;
+                while (steps < speeds[i] && dir == angles[i] && context.isFree(row + BehaviourContext.rowStep(dir), col + BehaviourContext.colStep(dir))) {
+                    row += BehaviourContext.rowStep(dir);
+                    col += BehaviourContext.colStep(dir);
+                    dir = field.angleAt(row, col);
+                    steps++;
+                }
+                intents[i] = Behaviour.move(steps);
+            }
+        }
+    }
+
+    /**
+     * Returns the goal of the behaviour
+     *
+     * @return The goal cell
+     */
+    public Position getGoal() {
+        return field.getGoal();
+    }
+
+    /**
+     * Detaches the flow field from the environment
+     */
+    @Override
+    public void dispose() {
+        field.dispose();
+    }
+}
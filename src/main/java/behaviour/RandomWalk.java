@@ -0,0 +1,39 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.behaviour;
+
+/**
+ * Wanders randomly: a robot moves a random number of free steps in its direction,
+ * and turns to a random direction when it is blocked or, now and then, on its own.
+ * All randomness comes from the generator of the simulation, so the walk is repeatable in the deterministic mode.
+ */
+public class RandomWalk implements Behaviour {
+    private final double turnChance;
+
+    /**
+     * Creates the behaviour
+     *
+     * @param turnChance The chance that a robot which could move turns instead, between 0 and 1
+     */
+    public RandomWalk(double turnChance) {
+        if (turnChance < 0 || turnChance > 1) {
+            throw new IllegalArgumentException("Turn chance must be between 0 and 1");
+        }
+        this.turnChance = turnChance;
+    }
+
+    @Override
+    public void decide(int count, int[] ids, int[] rows, int[] cols, int[] angles, int[] speeds, BehaviourContext context, int[] intents) {
+        for (int i = 0; i < count; i++) {
+            int free = context.freeSteps(rows[i], cols[i], angles[i], speeds[i]);
+            if (free == 0 || context.getRandom().nextDouble() < turnChance) {
+                int turn = 45 * (1 + context.getRandom().nextInt(7)); // any direction but the current one
+                intents[i] = Behaviour.turn((angles[i] + turn) % 360);
+            } else {
+                intents[i] = Behaviour.move(1 + context.getRandom().nextInt(free));
+            }
+        }
+    }
+}
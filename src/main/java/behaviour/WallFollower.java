@@ -0,0 +1,62 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.behaviour;
+
+/**
+ * Follows walls with the wall on one side of the robot.
+ * A robot without a wall beside it goes straight until it reaches one, then keeps the wall on its side,
+ * turning away from the wall at inner corners and around the end of the wall at outer corners.
+ * Robots in the way are treated like walls for the tick.
+ */
+public class WallFollower implements Behaviour {
+    private final int side; // 90 for the wall on the right, -90 for the wall on the left
+
+    /**
+     * Creates the behaviour
+     *
+     * @param rightHand true to keep the wall on the right, false to keep it on the left
+     */
+    public WallFollower(boolean rightHand) {
+        this.side = rightHand ? 90 : -90;
+    }
+
+    @Override
+    public void decide(int count, int[] ids, int[] rows, int[] cols, int[] angles, int[] speeds, BehaviourContext context, int[] intents) {
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            int col = cols[i];
+            int angle = angles[i];
+            int toWall = Math.floorMod(angle + side, 360);
+            int behindWall = Math.floorMod(angle + side + side / 2, 360); // the field behind the robot on the wall side
+            if (context.isFree(row + BehaviourContext.rowStep(toWall), col + BehaviourContext.colStep(toWall))
+                    && context.isWall(row + BehaviourContext.rowStep(behindWall), col + BehaviourContext.colStep(behindWall))) {
+                intents[i] = Behaviour.turn(toWall); // the wall ended, go around its end
+            } else if (context.isFree(row + BehaviourContext.rowStep(angle), col + BehaviourContext.colStep(angle))) {
+                intents[i] = Behaviour.move(alongWall(row, col, angle, toWall, speeds[i], context));
+            } else {
+                intents[i] = Behaviour.turn(Math.floorMod(angle - side, 360)); // inner corner, turn away from the wall
+            }
+        }
+    }
+
+    /**
+     * Counts the steps the robot can go straight without losing the wall it follows, at least one
+     */
+    private static int alongWall(int row, int col, int angle, int toWall, int speed, BehaviourContext context) {
+        int dRow = BehaviourContext.rowStep(angle);
+        int dCol = BehaviourContext.colStep(angle);
+        int steps = 1;
+        while (steps < speed) {
+            int nextRow = row + dRow * (steps + 1);
+            int nextCol = col + dCol * (steps + 1);
+            if (!context.isFree(nextRow, nextCol)
+                    || !context.isWall(row + dRow * steps + BehaviourContext.rowStep(toWall), col + dCol * steps + BehaviourContext.colStep(toWall))) {
+                break; // blocked, or the field reached has no wall beside it
+            }
+            steps++;
+        }
+        return steps;
+    }
+}
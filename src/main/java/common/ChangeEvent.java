@@ -0,0 +1,336 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xpetri23 - Aleksei Petrishko
+ */
+package main.java.common;
+
+/**
+ * A single change of an environment, delivered to {@link ChangeListener}s.
+ * Every type of change is a subclass carrying the fields it touched, so listeners can update only what changed.
+ */
+public abstract class ChangeEvent {
+
+    private ChangeEvent() {
+    }
+
+    /**
+     * Checks whether the change touches a field inside the rectangle, the bounds are inclusive
+     *
+     * @param top    The first row of the rectangle
+     * @param left   The first column of the rectangle
+     * @param bottom The last row of the rectangle
+     * @param right  The last column of the rectangle
+     * @return true if the change may be visible in the rectangle
+     */
+    public abstract boolean intersects(int top, int left, int bottom, int right);
+
+    private static boolean inside(Position cell, int top, int left, int bottom, int right) {
+        return cell.getRow() >= top && cell.getRow() <= bottom && cell.getCol() >= left && cell.getCol() <= right;
+    }
+
+    /**
+     * Base of the changes of a single robot
+     */
+    public abstract static class RobotEvent extends ChangeEvent {
+        private final int robotId;
+
+        private RobotEvent(int robotId) {
+            this.robotId = robotId;
+        }
+
+        /**
+         * Returns the identifier of the changed robot
+         *
+         * @return The identifier of the robot
+         */
+        public int getRobotId() {
+            return robotId;
+        }
+    }
+
+    /**
+     * A robot was added to the environment
+     */
+    public static final class RobotAdded extends RobotEvent {
+        private final Position cell;
+
+        /**
+         * Creates the event
+         *
+         * @param robotId The identifier of the robot
+         * @param cell    The field of the change
+         */
+        public RobotAdded(int robotId, Position cell) {
+            super(robotId);
+            this.cell = cell;
+        }
+
+        /**
+         * Returns the field of the change
+         *
+         * @return The position of the field
+         */
+        public Position getCell() {
+            return cell;
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return inside(cell, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * A robot was removed from the environment
+     */
+    public static final class RobotRemoved extends RobotEvent {
+        private final Position cell;
+
+        /**
+         * Creates the event
+         *
+         * @param robotId The identifier of the robot
+         * @param cell    The field of the change
+         */
+        public RobotRemoved(int robotId, Position cell) {
+            super(robotId);
+            this.cell = cell;
+        }
+
+        /**
+         * Returns the field of the change
+         *
+         * @return The position of the field
+         */
+        public Position getCell() {
+            return cell;
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return inside(cell, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * A robot moved from one field to another
+     */
+    public static final class RobotMoved extends RobotEvent {
+        private final Position from;
+        private final Position to;
+
+        /**
+         * Creates the event
+         *
+         * @param robotId The identifier of the robot
+         * @param from    The previous position of the robot
+         * @param to      The new position of the robot
+         */
+        public RobotMoved(int robotId, Position from, Position to) {
+            super(robotId);
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the field the robot left
+         *
+         * @return The previous position of the robot
+         */
+        public Position getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the field the robot entered
+         *
+         * @return The new position of the robot
+         */
+        public Position getTo() {
+            return to;
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return inside(from, top, left, bottom, right) || inside(to, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * A robot turned on its field
+     */
+    public static final class RobotTurned extends RobotEvent {
+        private final Position cell;
+        private final int angle;
+
+        /**
+         * Creates the event
+         *
+         * @param robotId The identifier of the robot
+         * @param cell    The field of the change
+         * @param angle   The new angle of the robot
+         */
+        public RobotTurned(int robotId, Position cell, int angle) {
+            super(robotId);
+            this.cell = cell;
+            this.angle = angle;
+        }
+
+        /**
+         * Returns the field of the change
+         *
+         * @return The position of the field
+         */
+        public Position getCell() {
+            return cell;
+        }
+
+        /**
+         * Returns the new angle of the robot
+         *
+         * @return The angle in degrees
+         */
+        public int getAngle() {
+            return angle;
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return inside(cell, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * A robot travelled part of the way towards the next field without leaving its field
+     */
+    public static final class RobotAdvanced extends RobotEvent {
+        private final Position cell;
+        private final int progress;
+
+        /**
+         * Creates the event
+         *
+         * @param robotId  The identifier of the robot
+         * @param cell     The field of the robot
+         * @param progress The new distance travelled from the field, in sub-cells
+         */
+        public RobotAdvanced(int robotId, Position cell, int progress) {
+            super(robotId);
+            this.cell = cell;
+            this.progress = progress;
+        }
+
+        /**
+         * Returns the field of the robot
+         *
+         * @return The position of the field
+         */
+        public Position getCell() {
+            return cell;
+        }
+
+        /**
+         * Returns the distance travelled from the field
+         *
+         * @return The distance in sub-cells
+         */
+        public int getProgress() {
+            return progress;
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return inside(cell, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * An obstacle was placed on a field
+     */
+    public static final class ObstacleAdded extends ChangeEvent {
+        private final Position cell;
+
+        /**
+         * Creates the event
+         *
+         * @param cell The field of the change
+         */
+        public ObstacleAdded(Position cell) {
+            this.cell = cell;
+        }
+
+        /**
+         * Returns the field of the change
+         *
+         * @return The position of the field
+         */
+        public Position getCell() {
+            return cell;
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return inside(cell, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * An obstacle was removed from a field
+     */
+    public static final class ObstacleRemoved extends ChangeEvent {
+        private final Position cell;
+
+        /**
+         * Creates the event
+         *
+         * @param cell The field of the change
+         */
+        public ObstacleRemoved(Position cell) {
+            this.cell = cell;
+        }
+
+        /**
+         * Returns the field of the change
+         *
+         * @return The position of the field
+         */
+        public Position getCell() {
+            return cell;
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return inside(cell, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * Many obstacles changed at once, listeners have to read all obstacles again
+     */
+    public static final class ObstaclesReplaced extends ChangeEvent {
+        public static final ObstaclesReplaced INSTANCE = new ObstaclesReplaced();
+
+        private ObstaclesReplaced() {
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return true;
+        }
+    }
+
+    /**
+     * All robots and obstacles were replaced by a saved state, listeners have to read the whole environment again
+     */
+    public static final class StateRestored extends ChangeEvent {
+        public static final StateRestored INSTANCE = new StateRestored();
+
+        private StateRestored() {
+        }
+
+        @Override
+        public boolean intersects(int top, int left, int bottom, int right) {
+            return true;
+        }
+    }
+}
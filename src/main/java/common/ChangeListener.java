@@ -0,0 +1,22 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xpetri23 - Aleksei Petrishko
+ */
+package main.java.common;
+
+import java.util.List;
+
+/**
+ * Listener for typed changes of an environment.
+ * Changes made in one batch of the environment, for example in one simulation tick, are delivered together,
+ * on the executor the listener was registered with.
+ */
+public interface ChangeListener {
+    /**
+     * Called with the changes of one batch, in the order they were made.
+     * Changes of obstacles within a batch follow the changes of robots.
+     *
+     * @param events The changes, the list cannot be modified
+     */
+    void changed(List<ChangeEvent> events);
+}
@@ -5,7 +5,10 @@
 
 package main.java.common;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
 
 /**
  * Interface that represents a simulation environment.
@@ -43,6 +46,29 @@ public interface Environment {
      */
     void removeObstacleAt(int row, int col);
 
+    /**
+     * Adds or removes obstacles at many positions as one operation.
+     * Positions outside the environment, fields taken by robots and fields already in the requested state are skipped.
+     *
+     * @param positions The positions to change
+     * @param obstacle  true to add obstacles, false to remove them
+     * @return The number of changed fields
+     */
+    int setObstacles(Collection<Position> positions, boolean obstacle);
+
+    /**
+     * Adds or removes obstacles in a rectangle as one operation.
+     * The bounds are inclusive and clipped to the environment, fields taken by robots are skipped.
+     *
+     * @param top      The first row of the rectangle
+     * @param left     The first column of the rectangle
+     * @param bottom   The last row of the rectangle
+     * @param right    The last column of the rectangle
+     * @param obstacle true to add obstacles, false to remove them
+     * @return The number of changed fields
+     */
+    int fillObstacles(int top, int left, int bottom, int right, boolean obstacle);
+
     /**
      * Checks if there is an obstacle at the specified row and column
      *
@@ -60,6 +86,131 @@ public interface Environment {
      */
     boolean robotAt(Position p);
 
+    /**
+     * Returns the robot with the specified identifier
+     *
+     * @param id The identifier of the robot
+     * @return The robot with the identifier, or null if there is no such robot
+     */
+    Robot getRobot(int id);
+
+    /**
+     * Returns the robot at the specified position
+     *
+     * @param p The position to check
+     * @return The robot at the position, or null if the position is free
+     */
+    Robot getRobotAt(Position p);
+
+    /**
+     * Turns a robot without moving it. The change of the robot is made in the batch and under the lock
+     * of the environment, so readers holding them never see it half done
+     *
+     * @param robot The robot to turn
+     * @param turn  The change of the angle of the robot
+     */
+    void turnRobot(Robot robot, Runnable turn);
+
+    /**
+     * Lets a robot travel part of the way towards the next cell without leaving its cell.
+     * The position indexes do not change, but the environment counts it as a change, so it is drawn and saved
+     *
+     * @param robot   The robot which travels
+     * @param advance The change of the progress of the robot, returns the new progress in sub-cells
+     */
+    void advanceRobot(Robot robot, IntSupplier advance);
+
+    /**
+     * Returns the version of the environment, a number which grows with every change of the robots or obstacles.
+     * Readers can compare versions to find out whether the environment has changed since they looked at it.
+     *
+     * @return The version of the environment
+     */
+    long getVersion();
+
+    /**
+     * Opens a batch of changes in the current thread.
+     * Until the batch is committed, obstacle listeners and observers are not notified, their notifications are
+     * collected and delivered once on commit, and the history is recorded only once for the whole batch.
+     * Batches can be nested, only the outermost commit delivers the notifications.
+     * A batch of another thread is waited for, so batches of different threads never interleave.
+     */
+    void beginBatch();
+
+    /**
+     * Closes the batch opened by {@link #beginBatch()} in the current thread
+     *
+     * @throws IllegalStateException if no batch is open in the current thread
+     */
+    void commit();
+
+    /**
+     * Returns the number of the batch open in the current thread.
+     * Every outermost batch gets a new number, so callers can do something only once per batch.
+     *
+     * @return The number of the open batch, or 0 if no batch is open in the current thread
+     */
+    long getBatch();
+
+    /**
+     * Defers the notification of the observers of an observable until the open batch is committed.
+     * Notifications of one observable are merged, its observers are notified once.
+     *
+     * @param observable The observable whose observers should be notified
+     * @return true if the notification was deferred, false if no batch is open and the caller has to notify now
+     */
+    boolean deferNotification(Observable observable);
+
+    /**
+     * Returns the robots inside the rectangle, the bounds are inclusive and clipped to the environment
+     *
+     * @param top    The first row of the rectangle
+     * @param left   The first column of the rectangle
+     * @param bottom The last row of the rectangle
+     * @param right  The last column of the rectangle
+     * @return The robots inside the rectangle
+     */
+    List<Robot> robotsInRect(int top, int left, int bottom, int right);
+
+    /**
+     * Returns the positions of the obstacles inside the rectangle, the bounds are inclusive and clipped to the environment
+     *
+     * @param top    The first row of the rectangle
+     * @param left   The first column of the rectangle
+     * @param bottom The last row of the rectangle
+     * @param right  The last column of the rectangle
+     * @return The obstacle positions ordered by rows and columns
+     */
+    List<Position> obstaclesInRect(int top, int left, int bottom, int right);
+
+    /**
+     * Returns the robots within the euclidean radius of the position
+     *
+     * @param center The center of the area
+     * @param radius The radius in cells
+     * @return The robots within the radius
+     */
+    List<Robot> robotsInRadius(Position center, int radius);
+
+    /**
+     * Returns up to k robots nearest to the position, ordered by distance and then by identifier
+     *
+     * @param center The position to measure from
+     * @param k      The maximum number of robots
+     * @return The nearest robots, including a robot standing on the position
+     */
+    List<Robot> nearestRobots(Position center, int k);
+
+    /**
+     * Moves a robot to another cell. The change of the position is made in the batch and under the lock
+     * of the environment together with the update of its indexes, so no reader sees the robot in a cell
+     * the indexes do not know yet
+     *
+     * @param robot The robot to move
+     * @param move  The change of the position of the robot
+     */
+    void moveRobot(Robot robot, Runnable move);
+
     /**
      * Checks if a given position is within the environment
      *
@@ -93,7 +244,7 @@ public interface Environment {
     /**
      * Method to get the list of robots in the environment
      *
-     * @return The list of robots in the environment
+     * @return The unmodifiable copy of the list of robots in the environment
      */
     List<Robot> getRobots();
 
@@ -104,6 +255,54 @@ public interface Environment {
      */
     List<Obstacle> getObstacles();
 
+    /**
+     * Returns an immutable snapshot of the obstacles in the environment.
+     * Taking the snapshot is cheap, unchanged parts of the map are shared with the environment.
+     *
+     * @return The snapshot of the obstacles
+     */
+    ObstacleGrid snapshotObstacles();
+
+    /**
+     * Replaces all robots and obstacles in the environment with the content of a saved snapshot.
+     * This is a trusted bulk operation: the snapshot is expected to be consistent, so robots are not
+     * validated one by one and nothing is logged per object.
+     *
+     * @param obstacles The snapshot of the obstacles to restore
+     * @param robots    The robots to place into the environment
+     */
+    void restoreSnapshot(ObstacleGrid obstacles, List<Robot> robots);
+
+    /**
+     * Registers a listener which is informed about every change of the obstacles
+     *
+     * @param listener The listener to add
+     */
+    void addObstacleListener(ObstacleListener listener);
+
+    /**
+     * Removes a previously registered obstacle listener
+     *
+     * @param listener The listener to remove
+     */
+    void removeObstacleListener(ObstacleListener listener);
+
+    /**
+     * Registers a listener which receives typed changes of robots and obstacles.
+     * Changes made outside a batch are delivered one by one, changes of a batch together when it is committed.
+     *
+     * @param listener The listener to add
+     * @param executor The executor calling the listener, for example {@code SwingUtilities::invokeLater}
+     */
+    void addChangeListener(ChangeListener listener, Executor executor);
+
+    /**
+     * Removes a previously registered change listener
+     *
+     * @param listener The listener to remove
+     */
+    void removeChangeListener(ChangeListener listener);
+
     /**
      * Method to clear all robots from the environment
      */
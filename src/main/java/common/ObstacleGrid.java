@@ -0,0 +1,282 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Occupancy grid of obstacles stored as a bitset split into square chunks.
+ * Chunks are shared between a grid and its snapshots and copied only when they are written to,
+ * so taking a snapshot is O(1) and unchanged parts of the map are never duplicated.
+ * Snapshots are immutable and can be read from any thread, but a mutable grid is not thread-safe:
+ * taking a snapshot marks its chunks as shared, so it must not run concurrently with a write to the same grid.
+ */
+public class ObstacleGrid {
+    private static final int CHUNK_BITS = 6; // chunk is 64 x 64 cells, one long per chunk row
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int rows;
+    private final int cols;
+    private final int chunkCols;
+    private final boolean frozen;
+    private Chunk[] chunks; // null entry is an empty chunk
+    private boolean chunksShared; // the chunk table itself is referenced by a snapshot
+    private Object owner; // chunks owned by another token are shared and must be copied before writing
+    private int count;
+
+    /**
+     * Creates an empty grid with the specified dimensions
+     *
+     * @param rows The number of rows of the grid
+     * @param cols The number of columns of the grid
+     */
+    public ObstacleGrid(int rows, int cols) {
+        this(rows, cols, new Chunk[chunkCount(rows) * chunkCount(cols)], false, 0, false);
+    }
+
+    private ObstacleGrid(int rows, int cols, Chunk[] chunks, boolean chunksShared, int count, boolean frozen) {
+        this.rows = rows;
+        this.cols = cols;
+        this.chunkCols = chunkCount(cols);
+        this.chunks = chunks;
+        this.chunksShared = chunksShared;
+        this.count = count;
+        this.frozen = frozen;
+        this.owner = new Object();
+    }
+
+    private static int chunkCount(int cells) {
+        return (cells + CHUNK_MASK) >> CHUNK_BITS;
+    }
+
+    /**
+     * Returns the number of rows of the grid
+     *
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the grid
+     *
+     * @return The number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of obstacles in the grid
+     *
+     * @return The number of obstacles
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Checks whether there is an obstacle at the specified cell.
+     * Cells outside the grid never contain an obstacle.
+     *
+     * @param row The row of the cell
+     * @param col The column of the cell
+     * @return true if there is an obstacle at the cell, false otherwise
+     */
+    public boolean get(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return false;
+        }
+        Chunk chunk = chunks[chunkIndex(row, col)];
+        return chunk != null && (chunk.bits[row & CHUNK_MASK] & (1L << (col & CHUNK_MASK))) != 0;
+    }
+
+    /**
+     * Places an obstacle at the specified cell
+     *
+     * @param row The row of the cell
+     * @param col The column of the cell
+     * @return true if the cell was empty before, false otherwise
+     */
+    public boolean set(int row, int col) {
+        if (get(row, col)) {
+            return false;
+        }
+        Chunk chunk = writableChunk(chunkIndex(row, col));
+        chunk.bits[row & CHUNK_MASK] |= 1L << (col & CHUNK_MASK);
+        count++;
+        return true;
+    }
+
+    /**
+     * Removes an obstacle from the specified cell
+     *
+     * @param row The row of the cell
+     * @param col The column of the cell
+     * @return true if there was an obstacle at the cell, false otherwise
+     */
+    public boolean clear(int row, int col) {
+        if (!get(row, col)) {
+            return false;
+        }
+        Chunk chunk = writableChunk(chunkIndex(row, col));
+        chunk.bits[row & CHUNK_MASK] &= ~(1L << (col & CHUNK_MASK));
+        count--;
+        return true;
+    }
+
+    /**
+     * Returns an immutable snapshot of the grid in O(1).
+     * The snapshot shares all chunks with this grid, chunks are copied lazily on the next write to this grid.
+     *
+     * @return The immutable snapshot of the grid
+     */
+    public ObstacleGrid snapshot() {
+        if (frozen) {
+            return this;
+        }
+        chunksShared = true;
+        owner = new Object(); // every current chunk now belongs to the snapshot as well
+        return new ObstacleGrid(rows, cols, chunks, true, count, true);
+    }
+
+    /**
+     * Returns a mutable grid with the same content in O(1), sharing chunks with this grid until written to
+     *
+     * @return The mutable copy of the grid
+     */
+    public ObstacleGrid mutableCopy() {
+        if (!frozen) {
+            return snapshot().mutableCopy();
+        }
+        return new ObstacleGrid(rows, cols, chunks, true, count, false);
+    }
+
+    /**
+     * Returns a hash of the obstacles.
+     * Grids with the same obstacles have the same hash, no matter how their chunks are shared or which chunks exist.
+     *
+     * @return The hash of the obstacles
+     */
+    public long contentHash() {
+        long hash = mix(rows * 31L + cols);
+        for (int index = 0; index < chunks.length; index++) {
+            Chunk chunk = chunks[index];
+            if (chunk == null) {
+                continue;
+            }
+            for (int row = 0; row < CHUNK_SIZE; row++) {
+                long word = chunk.bits[row];
+                if (word != 0) {
+                    hash = mix(mix(hash ^ (((long) index << CHUNK_BITS) | row)) ^ word);
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the positions of all obstacles, ordered by rows and columns
+     *
+     * @return The list of obstacle positions
+     */
+    public List<Position> positions() {
+        return positions(0, 0, rows - 1, cols - 1);
+    }
+
+    /**
+     * Returns the positions of the obstacles inside the rectangle, ordered by rows and columns.
+     * The bounds are inclusive and clipped to the grid, empty chunks are skipped without looking at their cells.
+     *
+     * @param top    The first row of the rectangle
+     * @param left   The first column of the rectangle
+     * @param bottom The last row of the rectangle
+     * @param right  The last column of the rectangle
+     * @return The list of obstacle positions
+     */
+    public List<Position> positions(int top, int left, int bottom, int right) {
+        List<Position> positions = new ArrayList<>();
+        top = Math.max(top, 0);
+        left = Math.max(left, 0);
+        bottom = Math.min(bottom, rows - 1);
+        right = Math.min(right, cols - 1);
+        for (int row = top; row <= bottom; row++) {
+            for (int chunkCol = left >> CHUNK_BITS; chunkCol <= right >> CHUNK_BITS; chunkCol++) {
+                Chunk chunk = chunks[(row >> CHUNK_BITS) * chunkCols + chunkCol];
+                if (chunk == null) {
+                    continue;
+                }
+                long word = chunk.bits[row & CHUNK_MASK] & columnMask(chunkCol, left, right);
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    positions.add(new Position(row, (chunkCol << CHUNK_BITS) + bit));
+                    word &= word - 1;
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the bits of the chunk column which lie between the left and the right column
+     */
+    private static long columnMask(int chunkCol, int left, int right) {
+        int first = Math.max(left - (chunkCol << CHUNK_BITS), 0);
+        int last = Math.min(right - (chunkCol << CHUNK_BITS), CHUNK_MASK);
+        long upTo = last == CHUNK_MASK ? -1L : (1L << (last + 1)) - 1;
+        return upTo & (-1L << first);
+    }
+
+    private int chunkIndex(int row, int col) {
+        return (row >> CHUNK_BITS) * chunkCols + (col >> CHUNK_BITS);
+    }
+
+    /**
+     * Returns the chunk at the given index, copying the chunk table and the chunk first if they are shared
+     *
+     * @param index The index of the chunk
+     * @return The chunk which can be modified in place
+     */
+    private Chunk writableChunk(int index) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Obstacle grid snapshot cannot be modified.");
+        }
+        if (chunksShared) {
+            chunks = chunks.clone();
+            chunksShared = false;
+        }
+        Chunk chunk = chunks[index];
+        if (chunk == null) {
+            chunk = new Chunk(new long[CHUNK_SIZE], owner);
+            chunks[index] = chunk;
+        } else if (chunk.owner != owner) {
+            chunk = new Chunk(chunk.bits.clone(), owner);
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * Block of 64 x 64 cells, one long per row
+     */
+    private static final class Chunk {
+        private final long[] bits;
+        private final Object owner;
+
+        private Chunk(long[] bits, Object owner) {
+            this.bits = bits;
+            this.owner = owner;
+        }
+    }
+}
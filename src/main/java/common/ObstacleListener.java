@@ -0,0 +1,32 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.common;
+
+/**
+ * Listener for changes of the obstacles in an environment.
+ * Used by components that keep data derived from the obstacle map, like cached paths.
+ */
+public interface ObstacleListener {
+    /**
+     * Called after an obstacle was added
+     *
+     * @param row The row of the obstacle
+     * @param col The column of the obstacle
+     */
+    void obstacleAdded(int row, int col);
+
+    /**
+     * Called after an obstacle was removed
+     *
+     * @param row The row of the obstacle
+     * @param col The column of the obstacle
+     */
+    void obstacleRemoved(int row, int col);
+
+    /**
+     * Called after all obstacles were replaced at once, for example by clearing or restoring the environment
+     */
+    void obstaclesReplaced();
+}
@@ -8,6 +8,21 @@ package main.java.common;
  * Interface representing a robot with basic capabilities like moving, turning, and state management.
  */
 public interface Robot extends Observable, Cloneable {
+    /**
+     * Returns the identifier of the robot.
+     * The identifier is unique within the environment and survives saving and restoring of the simulation state.
+     *
+     * @return The identifier of the robot, 0 if it was not assigned yet
+     */
+    int getId();
+
+    /**
+     * Sets the identifier of the robot. Identifiers are assigned by the environment when the robot is added.
+     *
+     * @param id The identifier of the robot
+     */
+    void setId(int id);
+
     /**
      * Turns the robot by 45 degrees clockwise
      */
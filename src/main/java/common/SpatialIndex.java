@@ -0,0 +1,194 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xpetri23 - Aleksei Petrishko
+ */
+package main.java.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Uniform grid of buckets holding the robots of an environment.
+ * Every bucket covers a square block of cells, so a query visits only the buckets overlapping
+ * the queried area and its cost depends on the size of the result rather than on the number of robots.
+ */
+public class SpatialIndex {
+    private static final int BUCKET_BITS = 3; // bucket is 8 x 8 cells
+    private static final int BUCKET_SIZE = 1 << BUCKET_BITS;
+
+    private final int rows;
+    private final int cols;
+    private final int bucketRows;
+    private final int bucketCols;
+    private final List<Robot>[] buckets; // null entry is an empty bucket
+
+    /**
+     * Creates an empty index for an environment with the specified dimensions
+     *
+     * @param rows The number of rows of the environment
+     * @param cols The number of columns of the environment
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // generic arrays can only be created raw
+    public SpatialIndex(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.bucketRows = (rows + BUCKET_SIZE - 1) >> BUCKET_BITS;
+        this.bucketCols = (cols + BUCKET_SIZE - 1) >> BUCKET_BITS;
+        this.buckets = new List[bucketRows * bucketCols];
+    }
+
+    /**
+     * Adds the robot to the bucket of its current position
+     *
+     * @param robot The robot to add
+     */
+    public synchronized void add(Robot robot) {
+        int index = bucketIndex(robot.getPosition());
+        if (buckets[index] == null) {
+            buckets[index] = new ArrayList<>(4);
+        }
+        buckets[index].add(robot);
+    }
+
+    /**
+     * Removes the robot from the bucket of the given position
+     *
+     * @param robot    The robot to remove
+     * @param position The position under which the robot was indexed
+     */
+    public synchronized void remove(Robot robot, Position position) {
+        List<Robot> bucket = buckets[bucketIndex(position)];
+        if (bucket != null) {
+            bucket.remove(robot);
+        }
+    }
+
+    /**
+     * Moves the robot to the bucket of its current position, if it has left the bucket of its previous position
+     *
+     * @param robot The robot which has moved
+     * @param from  The previous position of the robot
+     */
+    public synchronized void move(Robot robot, Position from) {
+        if (bucketIndex(from) != bucketIndex(robot.getPosition())) {
+            remove(robot, from);
+            add(robot);
+        }
+    }
+
+    /**
+     * Removes all robots from the index
+     */
+    public synchronized void clear() {
+        Arrays.fill(buckets, null);
+    }
+
+    /**
+     * Returns the robots inside the rectangle, the bounds are inclusive and clipped to the environment
+     *
+     * @param top    The first row of the rectangle
+     * @param left   The first column of the rectangle
+     * @param bottom The last row of the rectangle
+     * @param right  The last column of the rectangle
+     * @return The robots inside the rectangle
+     */
+    public synchronized List<Robot> inRect(int top, int left, int bottom, int right) {
+        List<Robot> result = new ArrayList<>();
+        top = Math.max(top, 0);
+        left = Math.max(left, 0);
+        bottom = Math.min(bottom, rows - 1);
+        right = Math.min(right, cols - 1);
+        if (top > bottom || left > right) {
+            return result;
+        }
+        for (int bucketRow = top >> BUCKET_BITS; bucketRow <= bottom >> BUCKET_BITS; bucketRow++) {
+            for (int bucketCol = left >> BUCKET_BITS; bucketCol <= right >> BUCKET_BITS; bucketCol++) {
+                List<Robot> bucket = buckets[bucketRow * bucketCols + bucketCol];
+                if (bucket == null) {
+                    continue;
+                }
+                for (Robot robot : bucket) {
+                    Position p = robot.getPosition();
+                    if (p.getRow() >= top && p.getRow() <= bottom && p.getCol() >= left && p.getCol() <= right) {
+                        result.add(robot);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the robots whose euclidean distance from the center is at most the radius
+     *
+     * @param center The center of the circle
+     * @param radius The radius in cells
+     * @return The robots inside the circle
+     */
+    public synchronized List<Robot> inRadius(Position center, int radius) {
+        List<Robot> result = inRect(center.getRow() - radius, center.getCol() - radius,
+                center.getRow() + radius, center.getCol() + radius);
+        long limit = (long) radius * radius;
+        result.removeIf(robot -> distance(center, robot.getPosition()) > limit);
+        return result;
+    }
+
+    /**
+     * Returns up to k robots nearest to the center, ordered by their euclidean distance and then by their identifiers.
+     * A robot standing on the center itself is included.
+     * The buckets are searched in growing rings around the center until no unvisited robot can be closer.
+     *
+     * @param center The cell to measure from
+     * @param k      The maximum number of robots to return
+     * @return The nearest robots
+     */
+    public synchronized List<Robot> nearest(Position center, int k) {
+        List<Robot> candidates = new ArrayList<>();
+        if (k <= 0) {
+            return candidates;
+        }
+        Comparator<Robot> order = Comparator.<Robot>comparingLong(robot -> distance(center, robot.getPosition()))
+                .thenComparingInt(Robot::getId);
+        int centerRow = Math.min(Math.max(center.getRow(), 0), rows - 1) >> BUCKET_BITS;
+        int centerCol = Math.min(Math.max(center.getCol(), 0), cols - 1) >> BUCKET_BITS;
+        int maxRing = Math.max(Math.max(centerRow, bucketRows - 1 - centerRow), Math.max(centerCol, bucketCols - 1 - centerCol));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int bucketRow = centerRow - ring; bucketRow <= centerRow + ring; bucketRow++) {
+                for (int bucketCol = centerCol - ring; bucketCol <= centerCol + ring; bucketCol++) {
+                    boolean onRing = Math.abs(bucketRow - centerRow) == ring || Math.abs(bucketCol - centerCol) == ring;
+                    if (!onRing || bucketRow < 0 || bucketRow >= bucketRows || bucketCol < 0 || bucketCol >= bucketCols) {
+                        continue;
+                    }
+                    List<Robot> bucket = buckets[bucketRow * bucketCols + bucketCol];
+                    if (bucket != null) {
+                        candidates.addAll(bucket);
+                    }
+                }
+            }
+            if (candidates.size() >= k) {
+                // every robot outside the visited block is at least this many cells away in one axis
+                long reach = Math.max(0, Math.min(
+                        Math.min(center.getRow() - ((long) (centerRow - ring) << BUCKET_BITS), ((long) (centerRow + ring + 1) << BUCKET_BITS) - center.getRow()),
+                        Math.min(center.getCol() - ((long) (centerCol - ring) << BUCKET_BITS), ((long) (centerCol + ring + 1) << BUCKET_BITS) - center.getCol())));
+                candidates.sort(order);
+                if (distance(center, candidates.get(k - 1).getPosition()) <= reach * reach) {
+                    break;
+                }
+            }
+        }
+        candidates.sort(order);
+        return candidates.size() > k ? new ArrayList<>(candidates.subList(0, k)) : candidates;
+    }
+
+    private int bucketIndex(Position p) {
+        return (p.getRow() >> BUCKET_BITS) * bucketCols + (p.getCol() >> BUCKET_BITS);
+    }
+
+    private static long distance(Position a, Position b) {
+        long dRow = a.getRow() - b.getRow();
+        long dCol = a.getCol() - b.getCol();
+        return dRow * dRow + dCol * dCol;
+    }
+}
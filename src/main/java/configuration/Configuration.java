@@ -6,6 +6,7 @@ package main.java.configuration;
 
 import main.java.common.Environment;
 import main.java.common.Position;
+import main.java.common.Robot;
 import main.java.environment.Room;
 import main.java.robot.AutonomousRobot;
 import main.java.robot.ControlledRobot;
@@ -130,18 +131,29 @@ public class Configuration {
      * @throws RuntimeException if an error occurs while reading the configuration.
      */
     private static void parseRobot(Room room, Scanner scanner, String robotType) throws RuntimeException {
+        int id = scanner.hasNext("id=\\d+") ? readInteger(scanner, "id") : 0; // identifier is optional in older files
         int row = readInteger(scanner, "positionRow");
         int col = readInteger(scanner, "positionCol");
 
+        Robot robot = null;
         if (robotType.contains("AutonomousRobot")) {
             int detectionRange = readInteger(scanner, "detectionRange");
             int turnAngle = readInteger(scanner, "turnAngle");
             boolean turnDirection = Boolean.parseBoolean(scanner.nextLine().split("=")[1].trim());
             int speed = readInteger(scanner, "speed");
-            AutonomousRobot.create(room, new Position(row, col), speed, detectionRange, turnAngle, turnDirection, 0);
+            robot = new AutonomousRobot(room, new Position(row, col), speed, detectionRange, turnAngle, turnDirection, 0);
         } else if (robotType.contains("ControlledRobot")) {
             int speed = readInteger(scanner, "speed");
-            ControlledRobot.create(room, new Position(row, col), speed, 0);
+            robot = new ControlledRobot(room, new Position(row, col), speed, 0);
+        }
+
+        if (robot != null) {
+            robot.setId(id);
+            if (room.addRobot(robot)) {
+                logger.info("Loaded {} #{} at position: col = {}, row = {}", robot.getClass().getSimpleName(), robot.getId(), col, row);
+            } else {
+                logger.warn("Failed to place {} at position: col = {}, row = {}", robot.getClass().getSimpleName(), col, row);
+            }
         }
     }
 
@@ -4,55 +4,71 @@
  */
 package main.java.design;
 
-import javax.swing.*;
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
 
 /**
- * A custom-designed field for the user interface.
- * It changes color on hover and has a bordered appearance.
+ * The custom design of the fields of the map.
+ * Fields are no longer separate components, the map view paints them with these colors.
  */
-public class DesignedField extends JPanel {
-    private final Color baseColor = new Color(255, 220, 150);
-    private final Color hoverColor = new Color(255, 180, 100);
+public class DesignedField {
+    public static final Color BASE_COLOR = new Color(255, 220, 150);
+    public static final Color HOVER_COLOR = new Color(255, 180, 100);
+    public static final Color OBSTACLE_COLOR = Color.DARK_GRAY;
+    public static final Color BORDER_COLOR = Color.BLACK;
+    public static final Color PAINT_COLOR = new Color(64, 64, 64, 160); // fields about to become obstacles
+    public static final Color ERASE_COLOR = new Color(255, 255, 255, 160); // obstacles about to be removed
+
+    private DesignedField() {
+    }
 
     /**
-     * Constructs a DesignedField with predefined colors and interactions.
+     * Paints a field with the given color and, if the field is large enough, its border.
+     *
+     * @param g      The graphics context used to draw the field.
+     * @param x      The x coordinate of the field.
+     * @param y      The y coordinate of the field.
+     * @param size   The size of the field in pixels.
+     * @param color  The color of the field.
+     * @param border Whether the border should be drawn.
      */
-    public DesignedField() {
-        setBackground(baseColor);
-        Color borderColor = new Color(0, 0, 0);
-        setBorder(BorderFactory.createLineBorder(borderColor, 1)); // Граница ячейки
-        setCursor(new Cursor(Cursor.HAND_CURSOR));
-
-        // Add mouse listeners to handle hover color changes
-        addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseEntered(MouseEvent e) {
-                setBackground(hoverColor);
-            }
-
-            @Override
-            public void mouseExited(MouseEvent e) {
-                setBackground(baseColor);
-            }
-        });
+    public static void paintField(Graphics2D g, int x, int y, int size, Color color, boolean border) {
+        g.setColor(color);
+        g.fillRect(x, y, size, size);
+        if (border) {
+            g.setColor(BORDER_COLOR);
+            g.drawRect(x, y, size, size);
+        }
     }
 
     /**
-     * Paints the field with the current background color.
+     * Returns the color of a map pixel covering several fields, mixed from the field color and the obstacle color.
      *
-     * @param g The Graphics object to protect.
+     * @param obstacles The number of obstacles in the fields covered by the pixel.
+     * @param fields    The number of fields covered by the pixel.
+     * @return The RGB value of the pixel.
      */
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    public static int densityColor(int obstacles, int fields) {
+        double share = Math.min(1.0, (double) obstacles / fields);
+        int red = mix(BASE_COLOR.getRed(), OBSTACLE_COLOR.getRed(), share);
+        int green = mix(BASE_COLOR.getGreen(), OBSTACLE_COLOR.getGreen(), share);
+        int blue = mix(BASE_COLOR.getBlue(), OBSTACLE_COLOR.getBlue(), share);
+        return (red << 16) | (green << 8) | blue;
+    }
 
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    /**
+     * Returns the color of a field in the heatmap overlay, from a faint yellow for rarely used fields to a strong red.
+     *
+     * @param intensity The count of the field relative to the highest count, between 0 and 1.
+     * @return The ARGB value of the overlay, the alpha gives its opacity.
+     */
+    public static int heatColor(double intensity) {
+        double share = Math.max(0.0, Math.min(1.0, intensity));
+        int alpha = mix(70, 210, share);
+        int green = mix(230, 0, share);
+        return (alpha << 24) | (255 << 16) | (green << 8);
+    }
 
-        g2d.setColor(getBackground());
-        g2d.fillRect(0, 0, getWidth(), getHeight());
+    private static int mix(int from, int to, double share) {
+        return (int) Math.round(from + (to - from) * share);
     }
 }
@@ -4,17 +4,32 @@
  */
 package main.java.design;
 
-import main.java.robot.AutonomousRobot;
-import main.java.robot.ControlledRobot;
 import main.java.common.Robot;
+import main.java.simulation.WorldSnapshot;
 
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A graphical representation of a robot with specific visual details.
+ * Robots are drawn from pre-rendered sprites, one for every combination of robot type, angle, active flag and size,
+ * so painting a robot is a single image copy. Sprites are rendered on first use and the least recently used ones
+ * are dropped when the cache is full, for example after zooming through many sizes.
  */
 public class DesignedRobot {
+    private static final Color CONTROLLED_COLOR = new Color(0, 204, 255);
+    private static final Color AUTONOMOUS_COLOR = new Color(255, 153, 0);
+    private static final BasicStroke ACTIVE_STROKE = new BasicStroke(3);
+    private static final int CACHE_SIZE = 512;
+    private static final Map<Long, Image> sprites = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
     private final Robot model;
 
     /**
@@ -35,17 +50,89 @@ public class DesignedRobot {
      * @param isActive Whether the robot is currently active.
      */
     public void paintComponent(Graphics g, int width, int height, boolean isActive) {
-        Graphics2D g2d = (Graphics2D) g;
+        if (width > 0 && height > 0) {
+            g.drawImage(spriteOf(WorldSnapshot.kindOf(model), model.angle(), width, height, isActive), 0, 0, null);
+        }
+    }
+
+    /**
+     * Paints a robot described by its type and angle, as stored in a world snapshot.
+     *
+     * @param g The graphics context used to draw the robot.
+     * @param x The x coordinate of the field.
+     * @param y The y coordinate of the field.
+     * @param size The size of the field.
+     * @param kind The type of the robot.
+     * @param angle The angle of the robot.
+     * @param isActive Whether the robot is currently active.
+     */
+    public static void paintRobot(Graphics g, int x, int y, int size, byte kind, int angle, boolean isActive) {
+        if (size > 0) {
+            g.drawImage(spriteOf(kind, angle, size, size, isActive), x, y, null);
+        }
+    }
+
+    /**
+     * Returns the fill color of the robot based on its type.
+     *
+     * @param robot The robot to get the color for.
+     * @return The fill color of the robot.
+     */
+    public static Color colorOf(Robot robot) {
+        return colorOf(WorldSnapshot.kindOf(robot));
+    }
+
+    /**
+     * Returns the fill color of a robot of the given type.
+     *
+     * @param kind The type of the robot as stored in a world snapshot.
+     * @return The fill color of the robot.
+     */
+    public static Color colorOf(byte kind) {
+        return (kind == WorldSnapshot.CONTROLLED) ? CONTROLLED_COLOR : (kind == WorldSnapshot.AUTONOMOUS) ? AUTONOMOUS_COLOR : Color.GRAY;
+    }
+
+    /**
+     * Returns the cached sprite of a robot, rendering it if it is not in the cache.
+     *
+     * @param kind The type of the robot.
+     * @param angle The angle of the robot.
+     * @param width The width of the sprite.
+     * @param height The height of the sprite.
+     * @param isActive Whether the robot is currently active.
+     * @return The sprite of the robot.
+     */
+    private static synchronized Image spriteOf(byte kind, int angle, int width, int height, boolean isActive) {
+        angle = Math.floorMod(angle, 360);
+        long key = ((((long) width << 16 | height) * 360 + angle) * 3 + kind) * 2 + (isActive ? 1 : 0);
+        Image sprite = sprites.get(key);
+        if (sprite == null) {
+            sprite = renderSprite(colorOf(kind), angle, width, height, isActive);
+            sprites.put(key, sprite);
+        }
+        return sprite;
+    }
+
+    /**
+     * Renders a sprite of a robot into a new transparent image.
+     *
+     * @param fillColor The fill color of the robot.
+     * @param angle The angle of the robot.
+     * @param width The width of the sprite.
+     * @param height The height of the sprite.
+     * @param isActive Whether the robot is active.
+     * @return The rendered sprite.
+     */
+    private static Image renderSprite(Color fillColor, int angle, int width, int height, boolean isActive) {
+        BufferedImage sprite = createImage(width, height);
+        Graphics2D g2d = sprite.createGraphics();
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        // Calculate robot size and position
-        double robotDiameter = Math.min(width, height) - 10.0;
+        // Calculate robot size and position, small fields keep a narrower margin
+        double robotDiameter = Math.max(Math.min(width, height) - 10.0, Math.min(width, height) * 0.8);
         double x = (width - robotDiameter) / 2.0;
         double y = (height - robotDiameter) / 2.0;
 
-        // Determine robot fill color based on its type
-        Color fillColor = (model instanceof ControlledRobot) ? new Color(0, 204, 255) : (model instanceof AutonomousRobot) ? new Color(255, 153, 0) : Color.GRAY;
-
         // Draw robot as a filled circle
         g2d.setColor(fillColor);
         Ellipse2D.Double robotShape = new Ellipse2D.Double(x, y, robotDiameter, robotDiameter);
@@ -54,12 +141,11 @@ public class DesignedRobot {
         // Draw border if the robot is active
         if (isActive) {
             g2d.setColor(Color.BLACK);
-            g2d.setStroke(new BasicStroke(3));
+            g2d.setStroke(ACTIVE_STROKE);
             g2d.draw(robotShape);
         }
 
         // Calculate the position of the robot's "eye" based on its angle
-        int angle = model.angle();
         double angleInRadians = Math.toRadians(angle - 90);
 
         double centerX = x + robotDiameter / 2.0;
@@ -73,5 +159,22 @@ public class DesignedRobot {
         Ellipse2D.Double eye = new Ellipse2D.Double(eyeX - 3.0, eyeY - 3.0, 6.0, 6.0);
         g2d.setColor(Color.BLACK);
         g2d.fill(eye);
+        g2d.dispose();
+        return sprite;
+    }
+
+    /**
+     * Creates a transparent image, compatible with the screen when there is one, so copying it can be accelerated.
+     *
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The new image.
+     */
+    private static BufferedImage createImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
     }
 }
@@ -9,25 +9,51 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 /**
  * Represents a simulation environment in the form of a room.
  * This environment contains robots and obstacles, and it provides methods to interact with them.
  */
 public class Room implements Environment, Observable {
+    private static final int BATCH_REPLACE_THRESHOLD = 256; // larger batches make listeners rebuild instead of updating cell by cell
     private final int rows;
     private final int cols;
     private final List<Robot> robots;
-    private final List<Obstacle> obstacles;
+    private final Map<Integer, Robot> robotsById = new ConcurrentHashMap<>();
+    private final Map<Position, Robot> robotsByCell = new ConcurrentHashMap<>();
+    private final SpatialIndex robotIndex;
+    private int nextRobotId = 1;
+    private final AtomicLong version = new AtomicLong();
+    private volatile ObstacleGrid obstacles; // written and snapshotted only under the lock of the room
     private static final Logger logger = LogManager.getLogger(Room.class);
     private final List<Observer> observers = new ArrayList<>();
+    private final List<ObstacleListener> obstacleListeners = new CopyOnWriteArrayList<>();
+    private final Object batchLock = new Object();
+    private volatile Thread batchOwner; // thread with an open batch, guarded by batchLock
+    private volatile int batchDepth; // changed only by the owner of the batch
+    private long batchNumber;
+    private final ObstacleBatch pendingObstacles = new ObstacleBatch(); // obstacle changes of the open batch
+    private final Set<Observable> pendingNotifications = new LinkedHashSet<>(); // observables changed in the open batch
+    private final Map<ChangeListener, Executor> changeListeners = new ConcurrentHashMap<>();
+    private final List<ChangeEvent> pendingEvents = new ArrayList<>(); // changes of robots in the open batch
 
     public Room(int rows, int cols) {
         this.rows = rows;
         this.cols = cols;
         this.robots = new ArrayList<>();
-        this.obstacles = new ArrayList<>();
+        this.obstacles = new ObstacleGrid(rows, cols);
+        this.robotIndex = new SpatialIndex(rows, cols);
     }
 
     /**
@@ -47,19 +73,31 @@ public class Room implements Environment, Observable {
     }
 
     /**
-     * Adds a robot to the room at the specified position
+     * Adds a robot to the room at the specified position.
+     * A robot without an identifier, or with an identifier already used in the room, gets a new one.
      *
      * @param robot The robot to add
      * @return true if the robot was added successfully, false otherwise
      */
     @Override
     public boolean addRobot(Robot robot) {
-        if (robot == null || !containsPosition(robot.getPosition()) ||
-                obstacleAt(robot.getPosition()) || robotAt(robot.getPosition())) {
-            return false;
-        }
-        robots.add(robot);
-        return true;
+        return callBatched(() -> {
+            if (robot == null || !containsPosition(robot.getPosition()) ||
+                    obstacleAt(robot.getPosition()) || robotAt(robot.getPosition())) {
+                return false;
+            }
+            if (robot.getId() <= 0 || robotsById.containsKey(robot.getId())) {
+                robot.setId(nextRobotId);
+            }
+            nextRobotId = Math.max(nextRobotId, robot.getId() + 1);
+            robots.add(robot);
+            robotsById.put(robot.getId(), robot);
+            robotsByCell.put(robot.getPosition(), robot);
+            robotIndex.add(robot);
+            version.incrementAndGet();
+            publish(new ChangeEvent.RobotAdded(robot.getId(), robot.getPosition()));
+            return true;
+        });
     }
 
     /**
@@ -69,28 +107,46 @@ public class Room implements Environment, Observable {
      */
     @Override
     public void removeRobot(Robot robot) {
-        boolean removed = robots.remove(robot);
-        if (removed) {
-            logger.info("Robot removed from the environment at position: {}, {}", robot.getPosition().getCol(), robot.getPosition().getRow());
-        } else {
-            logger.warn("Failed to remove robot: Robot not found in the environment.");
-        }
+        runBatched(() -> {
+            boolean removed = robots.remove(robot);
+            if (removed) {
+                robotsById.remove(robot.getId(), robot);
+                robotsByCell.remove(robot.getPosition(), robot);
+                robotIndex.remove(robot, robot.getPosition());
+                version.incrementAndGet();
+                publish(new ChangeEvent.RobotRemoved(robot.getId(), robot.getPosition()));
+                logger.info("Robot removed from the environment at position: {}, {}", robot.getPosition().getCol(), robot.getPosition().getRow());
+            } else {
+                logger.warn("Failed to remove robot: Robot not found in the environment.");
+            }
+        });
     }
 
     /**
      * Clears all robots from the room.
      */
     public void clearRobots() {
-        robots.clear();
-        logger.info("All robots have been removed from the room.");
+        runBatched(() -> {
+            robots.forEach(robot -> publish(new ChangeEvent.RobotRemoved(robot.getId(), robot.getPosition())));
+            robots.clear();
+            robotsById.clear();
+            robotsByCell.clear();
+            robotIndex.clear();
+            version.incrementAndGet();
+            logger.info("All robots have been removed from the room.");
+        });
     }
 
     /**
      * Clears all obstacles from the room.
      */
     public void clearObstacles() {
-        obstacles.clear();
-        logger.info("All obstacles have been removed from the room.");
+        runBatched(() -> {
+            obstacles = new ObstacleGrid(rows, cols);
+            version.incrementAndGet();
+            pendingObstacles.replaceAll();
+            logger.info("All obstacles have been removed from the room.");
+        });
     }
 
     /**
@@ -113,13 +169,14 @@ public class Room implements Environment, Observable {
      */
     @Override
     public void createObstacleAt(int row, int col) {
-        if (row < 0 || row >= this.rows || col < 0 || col >= this.cols ||
-                obstacleAt(row, col) || robotAt(new Position(row, col))) {
+        if (row < 0 || row >= this.rows || col < 0 || col >= this.cols) {
             return;
         }
-        Obstacle newObstacle = new Obstacle(new Position(row, col));
-        obstacles.add(newObstacle);
-        logger.info("Created a new Obstacle at position: col = {}, row = {}", newObstacle.getPosition().getCol(), newObstacle.getPosition().getRow());
+        runBatched(() -> {
+            if (pendingObstacles.apply(row, col, true)) {
+                logger.info("Created a new Obstacle at position: col = {}, row = {}", col, row);
+            }
+        });
     }
 
     /**
@@ -132,16 +189,48 @@ public class Room implements Environment, Observable {
         if (row < 0 || row >= this.rows || col < 0 || col >= this.cols) {
             return;
         }
-        Obstacle toRemove = obstacles.stream()
-                .filter(obstacle -> obstacle.getPosition().getRow() == row && obstacle.getPosition().getCol() == col)
-                .findFirst()
-                .orElse(null);
-        if (toRemove != null) {
-            obstacles.remove(toRemove);
-            logger.info("Removed an Obstacle at position: col = {}, row = {}", toRemove.getPosition().getCol(), toRemove.getPosition().getRow());
-            return;
+        runBatched(() -> {
+            if (pendingObstacles.apply(row, col, false)) {
+                logger.info("Removed an Obstacle at position: col = {}, row = {}", col, row);
+            } else {
+                logger.error("No Obstacle found at position: ({}, {})", row, col);
+            }
+        });
+    }
+
+    @Override
+    public int setObstacles(Collection<Position> positions, boolean obstacle) {
+        return callBatched(() -> {
+            int changed = 0;
+            for (Position pos : positions) {
+                if (containsPosition(pos) && pendingObstacles.apply(pos.getRow(), pos.getCol(), obstacle)) {
+                    changed++;
+                }
+            }
+            return logObstacles(changed, obstacle);
+        });
+    }
+
+    @Override
+    public int fillObstacles(int top, int left, int bottom, int right, boolean obstacle) {
+        return callBatched(() -> {
+            int changed = 0;
+            for (int row = Math.max(0, top); row <= Math.min(rows - 1, bottom); row++) {
+                for (int col = Math.max(0, left); col <= Math.min(cols - 1, right); col++) {
+                    if (pendingObstacles.apply(row, col, obstacle)) {
+                        changed++;
+                    }
+                }
+            }
+            return logObstacles(changed, obstacle);
+        });
+    }
+
+    private int logObstacles(int changed, boolean obstacle) {
+        if (changed > 0) {
+            logger.info("{} {} obstacles at once.", obstacle ? "Created" : "Removed", changed);
         }
-        logger.error("No Obstacle found at position: ({}, {})", row, col);
+        return changed;
     }
 
 
@@ -154,8 +243,7 @@ public class Room implements Environment, Observable {
      */
     @Override
     public boolean obstacleAt(int row, int col) {
-        return obstacles.stream().anyMatch(obstacle ->
-                obstacle.getPosition().getRow() == row && obstacle.getPosition().getCol() == col);
+        return obstacles.get(row, col);
     }
 
     /**
@@ -177,28 +265,349 @@ public class Room implements Environment, Observable {
      */
     @Override
     public boolean robotAt(Position p) {
-        return robots.stream().anyMatch(robot ->
-                robot.getPosition().equals(p));
+        return robotsByCell.containsKey(p);
+    }
+
+    /**
+     * Returns the robot with the specified identifier
+     *
+     * @param id The identifier of the robot
+     * @return The robot with the identifier, or null if there is no such robot
+     */
+    @Override
+    public Robot getRobot(int id) {
+        return robotsById.get(id);
+    }
+
+    /**
+     * Returns the robot at the specified position
+     *
+     * @param p The position to check
+     * @return The robot at the position, or null if the position is free
+     */
+    @Override
+    public Robot getRobotAt(Position p) {
+        return robotsByCell.get(p);
+    }
+
+    /**
+     * Moves the robot and then moves it to its new cell in the position index, both in one batch under the lock of the room
+     *
+     * @param robot The robot to move
+     * @param move  The change of the position of the robot
+     */
+    @Override
+    public void moveRobot(Robot robot, Runnable move) {
+        runBatched(() -> {
+            Position from = robot.getPosition();
+            move.run();
+            robotsByCell.remove(from, robot);
+            robotsByCell.put(robot.getPosition(), robot);
+            robotIndex.move(robot, from);
+            version.incrementAndGet();
+            publish(new ChangeEvent.RobotMoved(robot.getId(), from, robot.getPosition()));
+        });
+    }
+
+    /**
+     * Turns the robot in a batch under the lock of the room, the position indexes do not change
+     *
+     * @param robot The robot to turn
+     * @param turn  The change of the angle of the robot
+     */
+    @Override
+    public void turnRobot(Robot robot, Runnable turn) {
+        runBatched(() -> {
+            turn.run();
+            version.incrementAndGet();
+            publish(new ChangeEvent.RobotTurned(robot.getId(), robot.getPosition(), robot.angle()));
+        });
+    }
+
+    /**
+     * Changes the progress of the robot in a batch under the lock of the room, the position indexes do not change
+     *
+     * @param robot   The robot which travels
+     * @param advance The change of the progress of the robot, returns the new progress
+     */
+    @Override
+    public void advanceRobot(Robot robot, IntSupplier advance) {
+        runBatched(() -> {
+            int progress = advance.getAsInt();
+            version.incrementAndGet();
+            publish(new ChangeEvent.RobotAdvanced(robot.getId(), robot.getPosition(), progress));
+        });
+    }
+
+    /**
+     * Returns the version of the room, which grows with every change of the robots or obstacles
+     *
+     * @return The version of the room
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public void beginBatch() {
+        synchronized (batchLock) {
+            Thread current = Thread.currentThread();
+            while (batchOwner != null && batchOwner != current) {
+                try {
+                    batchLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the batch of another thread.", e);
+                }
+            }
+            if (batchDepth == 0) {
+                batchOwner = current;
+                batchNumber++;
+            }
+            batchDepth++;
+        }
+    }
+
+    @Override
+    public void commit() {
+        synchronized (batchLock) {
+            if (batchOwner != Thread.currentThread() || batchDepth == 0) {
+                throw new IllegalStateException("No batch is open in this thread.");
+            }
+            batchDepth--;
+            if (batchDepth > 0) {
+                return;
+            }
+        }
+        // the owner is kept until the notifications are delivered, so other batches wait for them
+        try {
+            List<ChangeEvent> events = new ArrayList<>(pendingEvents);
+            pendingEvents.clear();
+            pendingObstacles.finish(events);
+            deliver(events);
+            List<Observable> changed = new ArrayList<>(pendingNotifications);
+            pendingNotifications.clear();
+            changed.forEach(Observable::notifyObservers);
+        } finally {
+            synchronized (batchLock) {
+                batchOwner = null;
+                batchLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public long getBatch() {
+        return inBatch() ? batchNumber : 0;
+    }
+
+    @Override
+    public boolean deferNotification(Observable observable) {
+        if (!inBatch()) {
+            return false;
+        }
+        pendingNotifications.add(observable);
+        return true;
+    }
+
+    /**
+     * Runs a change of the room in the batch open in this thread, or in a batch of its own.
+     * A change from another thread waits for the open batch, so an edit of the user never lands in the middle
+     * of a tick, and the listeners learn about the change once the batch is committed.
+     * The lock of the room is taken inside the batch, the same order as a tick moving robots takes them in.
+     *
+     * @param change The change of the room
+     */
+    private void runBatched(Runnable change) {
+        if (inBatch()) { // robots moved by a tick, the batch is already open
+            synchronized (this) {
+                change.run();
+            }
+            return;
+        }
+        beginBatch();
+        try {
+            synchronized (this) {
+                change.run();
+            }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Runs a change of the room with a result in a batch, as {@link #runBatched(Runnable)} does
+     *
+     * @param change The change of the room
+     * @return The result of the change
+     */
+    private <T> T callBatched(Supplier<T> change) {
+        if (inBatch()) {
+            synchronized (this) {
+                return change.get();
+            }
+        }
+        beginBatch();
+        try {
+            synchronized (this) {
+                return change.get();
+            }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Collects a change for the change listeners, they get it once the batch is committed
+     *
+     * @param event The change
+     */
+    private void publish(ChangeEvent event) {
+        if (!changeListeners.isEmpty()) {
+            pendingEvents.add(event);
+        }
+    }
+
+    /**
+     * Hands the changes to every change listener on its executor
+     *
+     * @param events The changes to deliver
+     */
+    private void deliver(List<ChangeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<ChangeEvent> delivered = List.copyOf(events);
+        changeListeners.forEach((listener, executor) -> executor.execute(() -> listener.changed(delivered)));
+    }
+
+    /**
+     * Checks whether the current thread has an open batch
+     *
+     * @return true if changes of the current thread are part of a batch
+     */
+    private boolean inBatch() {
+        return batchDepth > 0 && batchOwner == Thread.currentThread();
+    }
+
+    /**
+     * Returns the robots inside the rectangle, only the buckets of the index overlapping the rectangle are visited
+     *
+     * @param top    The first row of the rectangle
+     * @param left   The first column of the rectangle
+     * @param bottom The last row of the rectangle
+     * @param right  The last column of the rectangle
+     * @return The robots inside the rectangle
+     */
+    @Override
+    public List<Robot> robotsInRect(int top, int left, int bottom, int right) {
+        return robotIndex.inRect(top, left, bottom, right);
     }
 
-    /*
-     * Returns the list of robots in the room
+    /**
+     * Returns the positions of the obstacles inside the rectangle
+     *
+     * @param top    The first row of the rectangle
+     * @param left   The first column of the rectangle
+     * @param bottom The last row of the rectangle
+     * @param right  The last column of the rectangle
+     * @return The obstacle positions ordered by rows and columns
+     */
+    @Override
+    public List<Position> obstaclesInRect(int top, int left, int bottom, int right) {
+        return obstacles.positions(top, left, bottom, right);
+    }
+
+    /**
+     * Returns the robots within the euclidean radius of the position
+     *
+     * @param center The center of the area
+     * @param radius The radius in cells
+     * @return The robots within the radius
+     */
+    @Override
+    public List<Robot> robotsInRadius(Position center, int radius) {
+        return robotIndex.inRadius(center, radius);
+    }
+
+    /**
+     * Returns up to k robots nearest to the position
+     *
+     * @param center The position to measure from
+     * @param k      The maximum number of robots
+     * @return The nearest robots ordered by distance and then by identifier
+     */
+    @Override
+    public List<Robot> nearestRobots(Position center, int k) {
+        return robotIndex.nearest(center, k);
+    }
+
+    /**
+     * Returns the list of robots in the room.
+     * The list is an unmodifiable copy, so it can be iterated while robots are added or removed.
      *
      * @return The list of robots in the room
      */
     @Override
-    public List<Robot> getRobots() {
-        return robots;
+    public synchronized List<Robot> getRobots() {
+        return List.copyOf(robots);
     }
 
     /**
-     * Returns the list of obstacles in the room
+     * Returns the list of obstacles in the room.
+     * The list is built from the obstacle grid, changes to it do not affect the room.
      *
      * @return The list of obstacles in the room
      */
     @Override
     public List<Obstacle> getObstacles() {
-        return obstacles;
+        List<Obstacle> list = new ArrayList<>(obstacles.size());
+        obstacles.positions().forEach(position -> list.add(new Obstacle(position)));
+        return list;
+    }
+
+    /**
+     * Returns an immutable snapshot of the obstacles in the room in O(1).
+     * Taken under the lock the obstacles are written under, so no write can miss that its chunk is now shared.
+     *
+     * @return The snapshot of the obstacle grid
+     */
+    @Override
+    public synchronized ObstacleGrid snapshotObstacles() {
+        return obstacles.snapshot();
+    }
+
+    /**
+     * Replaces all robots and obstacles in the room with the content of a saved snapshot in one pass.
+     * The obstacle grid is swapped in O(1) and the robot list is rebuilt once, without per-object checks.
+     *
+     * @param obstacles The snapshot of the obstacle grid to restore
+     * @param robots    The robots to place into the room
+     */
+    @Override
+    public void restoreSnapshot(ObstacleGrid obstacles, List<Robot> robots) {
+        if (obstacles.getRows() != rows || obstacles.getCols() != cols) {
+            throw new IllegalArgumentException("The obstacle grid does not match the dimensions of the room.");
+        }
+        runBatched(() -> {
+            this.obstacles = obstacles.mutableCopy();
+            this.robots.clear();
+            this.robots.addAll(robots);
+            robotsById.clear();
+            robotsByCell.clear();
+            robotIndex.clear();
+            for (Robot robot : robots) {
+                robotsById.put(robot.getId(), robot);
+                robotsByCell.put(robot.getPosition(), robot);
+                robotIndex.add(robot);
+                nextRobotId = Math.max(nextRobotId, robot.getId() + 1);
+            }
+            version.incrementAndGet();
+            pendingObstacles.replaceAll();
+            publish(ChangeEvent.StateRestored.INSTANCE);
+            logger.debug("Restored a snapshot with {} robots and {} obstacles.", robots.size(), obstacles.size());
+        });
     }
 
     /**
@@ -221,6 +630,95 @@ public class Room implements Environment, Observable {
         return this.cols;
     }
 
+    @Override
+    public void addObstacleListener(ObstacleListener listener) {
+        obstacleListeners.add(listener);
+    }
+
+    @Override
+    public void removeObstacleListener(ObstacleListener listener) {
+        obstacleListeners.remove(listener);
+    }
+
+    @Override
+    public void addChangeListener(ChangeListener listener, Executor executor) {
+        changeListeners.put(listener, executor);
+    }
+
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Changes of obstacles collected to be reported to the listeners at once.
+     * Few changes are reported cell by cell, many as a replacement of all obstacles,
+     * so listeners rebuild their data at most once.
+     */
+    private class ObstacleBatch {
+        private final int[] changedRows = new int[BATCH_REPLACE_THRESHOLD];
+        private final int[] changedCols = new int[BATCH_REPLACE_THRESHOLD];
+        private final boolean[] added = new boolean[BATCH_REPLACE_THRESHOLD];
+        private int count;
+
+        /**
+         * Adds or removes the obstacle at the cell, fields taken by robots are skipped
+         *
+         * @return true if the cell changed
+         */
+        private boolean apply(int row, int col, boolean obstacle) {
+            boolean changed = obstacle
+                    ? !obstacles.get(row, col) && !robotAt(new Position(row, col)) && obstacles.set(row, col)
+                    : obstacles.clear(row, col);
+            if (changed) {
+                version.incrementAndGet();
+                record(row, col, obstacle);
+            }
+            return changed;
+        }
+
+        private void record(int row, int col, boolean obstacle) {
+            if (count < BATCH_REPLACE_THRESHOLD) {
+                changedRows[count] = row;
+                changedCols[count] = col;
+                added[count] = obstacle;
+            }
+            count++;
+        }
+
+        private void replaceAll() {
+            count = BATCH_REPLACE_THRESHOLD + 1; // single changes collected so far are covered by the replacement
+        }
+
+        /**
+         * Notifies the obstacle listeners and adds the matching change events to the list
+         *
+         * @param events The list receiving the change events
+         */
+        private void finish(List<ChangeEvent> events) {
+            if (count > BATCH_REPLACE_THRESHOLD) {
+                obstacleListeners.forEach(ObstacleListener::obstaclesReplaced);
+                events.add(ChangeEvent.ObstaclesReplaced.INSTANCE);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    int row = changedRows[i];
+                    int col = changedCols[i];
+                    boolean obstacle = added[i];
+                    obstacleListeners.forEach(listener -> {
+                        if (obstacle) {
+                            listener.obstacleAdded(row, col);
+                        } else {
+                            listener.obstacleRemoved(row, col);
+                        }
+                    });
+                    Position cell = new Position(row, col);
+                    events.add(obstacle ? new ChangeEvent.ObstacleAdded(cell) : new ChangeEvent.ObstacleRemoved(cell));
+                }
+            }
+            count = 0;
+        }
+    }
+
     @Override
     public void addObserver(Observer observer) {
         observers.add(observer);
@@ -233,6 +731,9 @@ public class Room implements Environment, Observable {
 
     @Override
     public void notifyObservers() {
+        if (deferNotification(this)) {
+            return;
+        }
         observers.forEach(observer -> observer.update(this));
     }
 
@@ -247,7 +748,7 @@ public class Room implements Environment, Observable {
         sb.append("Rows=").append(rows).append("\n");
         sb.append("Cols=").append(cols).append("\n");
         sb.append("Obstacles=").append(obstacles.size()).append("\n");
-        for (Obstacle obstacle : obstacles) {
+        for (Obstacle obstacle : getObstacles()) {
             sb.append(obstacle.toString());
         }
         sb.append("Robots=").append(robots.size()).append("\n");
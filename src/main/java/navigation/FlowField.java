@@ -0,0 +1,277 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.navigation;
+
+import main.java.common.Environment;
+import main.java.common.ObstacleListener;
+import main.java.common.Position;
+
+import java.util.Arrays;
+
+/**
+ * Distance field towards one goal cell, shared by all robots heading to that goal.
+ * A single search from the goal stores for every cell the distance to the goal and the direction of the next step,
+ * so a robot finds its way in O(1) per tick. When an obstacle is added or removed, only the cells whose distance
+ * depends on that cell are recomputed.
+ */
+public class FlowField implements ObstacleListener {
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int[] ROW_STEPS = {-1, -1, 0, 1, 1, 1, 0, -1}; // index is the angle divided by 45
+    private static final int[] COL_STEPS = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    private final Environment env;
+    private final int rows;
+    private final int cols;
+    private final int goal;
+    private final int[] distance;
+    private final byte[] direction; // index of the step towards the goal, -1 at the goal and in unreachable cells
+    private final int[] marks; // repair number in which the cell was settled or collected
+    private int repair;
+    private final NodeQueue queue = new NodeQueue();
+    private int[] stack = new int[64];
+
+    /**
+     * Computes the field for the given goal and registers it for obstacle changes
+     *
+     * @param env  The environment to compute the field in
+     * @param goal The goal cell
+     */
+    public FlowField(Environment env, Position goal) {
+        this.env = env;
+        this.rows = env.getRows();
+        this.cols = env.getCols();
+        this.goal = goal.getRow() * cols + goal.getCol();
+        this.distance = new int[rows * cols];
+        this.direction = new byte[rows * cols];
+        this.marks = new int[rows * cols];
+        computeAll();
+        env.addObstacleListener(this);
+    }
+
+    /**
+     * Returns the goal of the field
+     *
+     * @return The goal cell
+     */
+    public Position getGoal() {
+        return new Position(goal / cols, goal % cols);
+    }
+
+    /**
+     * Returns the angle of the next step towards the goal
+     *
+     * @param p The cell to step from
+     * @return The angle of the step, or -1 if the cell is the goal or the goal cannot be reached from it
+     */
+    public synchronized int angleAt(Position p) {
+        if (!env.containsPosition(p)) {
+            return -1;
+        }
+        return angleAt(p.getRow(), p.getCol());
+    }
+
+    /**
+     * Returns the angle of the next step towards the goal
+     *
+     * @param row The row of the cell to step from
+     * @param col The column of the cell to step from
+     * @return The angle of the step, or -1 if the cell is the goal, outside the environment or the goal cannot be reached from it
+     */
+    public synchronized int angleAt(int row, int col) {
+        if (row < 0 || col < 0 || row >= rows || col >= cols) {
+            return -1;
+        }
+        int dir = direction[row * cols + col];
+        return dir < 0 ? -1 : dir * 45;
+    }
+
+    /**
+     * Returns the number of steps from the cell to the goal
+     *
+     * @param p The cell to measure from
+     * @return The distance to the goal, or -1 if the goal cannot be reached from the cell
+     */
+    public synchronized int distanceAt(Position p) {
+        if (!env.containsPosition(p)) {
+            return -1;
+        }
+        int dist = distance[p.getRow() * cols + p.getCol()];
+        return dist == UNREACHABLE ? -1 : dist;
+    }
+
+    /**
+     * Detaches the field from the environment, it is no longer updated
+     */
+    public void dispose() {
+        env.removeObstacleListener(this);
+    }
+
+    /**
+     * Computes the whole field from scratch by a breadth-first search from the goal
+     */
+    private void computeAll() {
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(direction, (byte) -1);
+        if (isBlocked(goal)) {
+            return;
+        }
+        int[] fifo = new int[rows * cols];
+        int head = 0;
+        int tail = 0;
+        distance[goal] = 0;
+        fifo[tail++] = goal;
+        while (head < tail) {
+            int cell = fifo[head++];
+            int row = cell / cols;
+            int col = cell % cols;
+            for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+                int next = neighbour(row, col, dir);
+                if (next < 0 || distance[next] != UNREACHABLE || isBlocked(next)) {
+                    continue;
+                }
+                distance[next] = distance[cell] + 1;
+                direction[next] = (byte) ((dir + 4) % 8); // step back towards the cell
+                fifo[tail++] = next;
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cells whose route went through the new obstacle and finds new routes for them
+     */
+    @Override
+    public synchronized void obstacleAdded(int row, int col) {
+        int cell = row * cols + col;
+        if (distance[cell] == UNREACHABLE) {
+            return;
+        }
+        nextRepair();
+        // collect the cell and every cell whose chain of directions leads through it
+        int size = 0;
+        int collected = 0;
+        stack = push(stack, size++, cell);
+        marks[cell] = repair;
+        while (collected < size) {
+            int current = stack[collected++];
+            int currentRow = current / cols;
+            int currentCol = current % cols;
+            for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+                int next = neighbour(currentRow, currentCol, dir);
+                if (next >= 0 && marks[next] != repair && direction[next] == (dir + 4) % 8) {
+                    marks[next] = repair;
+                    stack = push(stack, size++, next);
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            distance[stack[i]] = UNREACHABLE;
+            direction[stack[i]] = -1;
+        }
+        // seed the invalidated cells from their valid neighbours and propagate
+        queue.clear();
+        for (int i = 0; i < size; i++) {
+            int current = stack[i];
+            if (isBlocked(current)) {
+                continue;
+            }
+            int currentRow = current / cols;
+            int currentCol = current % cols;
+            for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+                int next = neighbour(currentRow, currentCol, dir);
+                if (next >= 0 && distance[next] != UNREACHABLE && distance[next] + 1 < distance[current]) {
+                    distance[current] = distance[next] + 1;
+                    direction[current] = (byte) dir;
+                }
+            }
+            if (distance[current] != UNREACHABLE) {
+                queue.push(current, distance[current]);
+            }
+        }
+        propagate();
+    }
+
+    /**
+     * Finds a route for the freed cell and shortens the routes which can now go through it
+     */
+    @Override
+    public synchronized void obstacleRemoved(int row, int col) {
+        int cell = row * cols + col;
+        nextRepair();
+        queue.clear();
+        if (cell == goal) {
+            distance[cell] = 0;
+            direction[cell] = -1;
+        } else {
+            for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+                int next = neighbour(row, col, dir);
+                if (next >= 0 && distance[next] != UNREACHABLE && distance[next] + 1 < distance[cell]) {
+                    distance[cell] = distance[next] + 1;
+                    direction[cell] = (byte) dir;
+                }
+            }
+        }
+        if (distance[cell] != UNREACHABLE) {
+            queue.push(cell, distance[cell]);
+            propagate();
+        }
+    }
+
+    @Override
+    public synchronized void obstaclesReplaced() {
+        computeAll();
+    }
+
+    /**
+     * Relaxes the neighbours of the queued cells in order of their distance until no distance can be improved
+     */
+    private void propagate() {
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            if (marks[cell] == -repair) {
+                continue; // already settled with its final distance
+            }
+            marks[cell] = -repair;
+            int row = cell / cols;
+            int col = cell % cols;
+            for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+                int next = neighbour(row, col, dir);
+                if (next < 0 || isBlocked(next) || distance[cell] + 1 >= distance[next]) {
+                    continue;
+                }
+                distance[next] = distance[cell] + 1;
+                direction[next] = (byte) ((dir + 4) % 8);
+                queue.push(next, distance[next]);
+            }
+        }
+    }
+
+    private void nextRepair() {
+        if (++repair == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            repair = 1;
+        }
+    }
+
+    private boolean isBlocked(int cell) {
+        return env.obstacleAt(cell / cols, cell % cols);
+    }
+
+    private int neighbour(int row, int col, int dir) {
+        int nextRow = row + ROW_STEPS[dir];
+        int nextCol = col + COL_STEPS[dir];
+        if (nextRow < 0 || nextRow >= rows || nextCol < 0 || nextCol >= cols) {
+            return -1;
+        }
+        return nextRow * cols + nextCol;
+    }
+
+    private static int[] push(int[] stack, int size, int value) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size] = value;
+        return stack;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of grid nodes ordered by an integer priority.
+ * Entries are packed into longs, so the queue does not allocate while searching and can be reused across searches.
+ */
+class NodeQueue {
+    private long[] heap = new long[64];
+    private int size;
+
+    /**
+     * Adds a node with the given priority
+     *
+     * @param node     The index of the node
+     * @param priority The priority of the node, lower is polled first
+     */
+    void push(int node, int priority) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        long entry = ((long) priority << 32) | (node & 0xffffffffL);
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Removes the node with the lowest priority
+     *
+     * @return The index of the node
+     */
+    int poll() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0) {
+            heap[i] = last;
+        }
+        return (int) top;
+    }
+
+    /**
+     * Checks whether the queue is empty
+     *
+     * @return true if there are no nodes in the queue
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all nodes, keeping the allocated storage
+     */
+    void clear() {
+        size = 0;
+    }
+}
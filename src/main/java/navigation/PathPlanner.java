@@ -0,0 +1,173 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.navigation;
+
+import main.java.common.Environment;
+import main.java.common.ObstacleListener;
+import main.java.common.Position;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A* path planner over the grid of an environment.
+ * Robots move in 8 directions and a diagonal step takes as long as a straight one, so every step costs 1
+ * and the Chebyshev distance is used as the heuristic. Other robots are not part of the plan, they are
+ * handled when the path is executed. The search buffers are reused between queries and found paths are
+ * cached until the obstacles of the environment change.
+ */
+public class PathPlanner implements ObstacleListener {
+    private static final int CACHE_SIZE = 1024;
+    private static final int[] ROW_STEPS = {-1, -1, 0, 1, 1, 1, 0, -1};
+    private static final int[] COL_STEPS = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final Logger logger = LogManager.getLogger(PathPlanner.class);
+
+    private final Environment env;
+    private final int rows;
+    private final int cols;
+    private final int[] cost;
+    private final int[] parent;
+    private final int[] visited; // search number in which the node was reached, so buffers need no clearing
+    private final int[] closed;
+    private final NodeQueue open = new NodeQueue();
+    private int search;
+    private final Map<Long, List<Position>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, List<Position>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Creates a planner for the given environment and registers it for obstacle changes
+     *
+     * @param env The environment to plan in
+     */
+    public PathPlanner(Environment env) {
+        this.env = env;
+        this.rows = env.getRows();
+        this.cols = env.getCols();
+        int cells = rows * cols;
+        this.cost = new int[cells];
+        this.parent = new int[cells];
+        this.visited = new int[cells];
+        this.closed = new int[cells];
+        env.addObstacleListener(this);
+    }
+
+    /**
+     * Finds the shortest path between two cells
+     *
+     * @param start The cell to start from
+     * @param goal  The cell to reach
+     * @return The cells of the path without the start cell and ending with the goal, an empty list if the start is the goal,
+     * or null if the goal cannot be reached
+     */
+    public synchronized List<Position> findPath(Position start, Position goal) {
+        if (!env.containsPosition(start) || !env.containsPosition(goal) || env.obstacleAt(goal)) {
+            return null;
+        }
+        long key = ((long) index(start) << 32) | index(goal);
+        if (cache.containsKey(key)) {
+            return cache.get(key);
+        }
+        List<Position> path = search(index(start), index(goal));
+        cache.put(key, path);
+        if (path == null) {
+            logger.debug("No path found from col = {}, row = {} to col = {}, row = {}", start.getCol(), start.getRow(), goal.getCol(), goal.getRow());
+        }
+        return path;
+    }
+
+    /**
+     * Runs the A* search between two nodes
+     *
+     * @param start The index of the start node
+     * @param goal  The index of the goal node
+     * @return The path, or null if the goal cannot be reached
+     */
+    private List<Position> search(int start, int goal) {
+        if (++search == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            Arrays.fill(closed, 0);
+            search = 1;
+        }
+        open.clear();
+        int goalRow = goal / cols;
+        int goalCol = goal % cols;
+        cost[start] = 0;
+        parent[start] = -1;
+        visited[start] = search;
+        open.push(start, heuristic(start, goalRow, goalCol));
+
+        while (!open.isEmpty()) {
+            int node = open.poll();
+            if (closed[node] == search) {
+                continue; // stale queue entry
+            }
+            if (node == goal) {
+                return buildPath(goal);
+            }
+            closed[node] = search;
+            int row = node / cols;
+            int col = node % cols;
+            for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+                int nextRow = row + ROW_STEPS[dir];
+                int nextCol = col + COL_STEPS[dir];
+                if (nextRow < 0 || nextRow >= rows || nextCol < 0 || nextCol >= cols || env.obstacleAt(nextRow, nextCol)) {
+                    continue;
+                }
+                int next = nextRow * cols + nextCol;
+                int nextCost = cost[node] + 1;
+                if (closed[next] == search || (visited[next] == search && cost[next] <= nextCost)) {
+                    continue;
+                }
+                visited[next] = search;
+                cost[next] = nextCost;
+                parent[next] = node;
+                open.push(next, nextCost + heuristic(next, goalRow, goalCol));
+            }
+        }
+        return null;
+    }
+
+    private List<Position> buildPath(int goal) {
+        List<Position> path = new ArrayList<>(cost[goal]);
+        for (int node = goal; parent[node] != -1; node = parent[node]) {
+            path.add(new Position(node / cols, node % cols));
+        }
+        Collections.reverse(path);
+        return Collections.unmodifiableList(path);
+    }
+
+    private int heuristic(int node, int goalRow, int goalCol) {
+        return Math.max(Math.abs(node / cols - goalRow), Math.abs(node % cols - goalCol));
+    }
+
+    private int index(Position position) {
+        return position.getRow() * cols + position.getCol();
+    }
+
+    @Override
+    public synchronized void obstacleAdded(int row, int col) {
+        cache.clear();
+    }
+
+    @Override
+    public synchronized void obstacleRemoved(int row, int col) {
+        cache.clear();
+    }
+
+    @Override
+    public synchronized void obstaclesReplaced() {
+        cache.clear();
+    }
+}
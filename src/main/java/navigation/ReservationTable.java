@@ -0,0 +1,158 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Space-time reservation table shared by the robots of one environment.
+ * A robot reserves a cell for a tick before it moves there, other robots treat the cell as taken for that tick.
+ * Reservations are kept in an open addressing hash map from the packed (tick, cell) key to the robot identifier,
+ * so no objects are allocated per reservation, and reservations of past ticks are dropped when the clock advances.
+ */
+public class ReservationTable {
+    private static final long EMPTY = -1L;
+
+    private final int cols;
+    private long[] keys;
+    private int[] holders;
+    private int size;
+    private long oldestTick;
+
+    /**
+     * Creates an empty table for an environment with the given number of columns
+     *
+     * @param cols The number of columns of the environment
+     */
+    public ReservationTable(int cols) {
+        this.cols = cols;
+        this.keys = new long[256];
+        this.holders = new int[256];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Reserves the cell for the robot in the given tick
+     *
+     * @param row     The row of the cell
+     * @param col     The column of the cell
+     * @param tick    The tick of the reservation
+     * @param robotId The identifier of the robot
+     * @return true if the cell was free or already reserved by the robot, false if another robot holds it
+     */
+    public synchronized boolean reserve(int row, int col, long tick, int robotId) {
+        if (tick < oldestTick) {
+            return true; // the tick is over, nobody can collide in it anymore
+        }
+        long key = key(row, col, tick);
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return holders[slot] == robotId;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+            slot = find(key);
+        }
+        keys[slot] = key;
+        holders[slot] = robotId;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns the robot which holds the cell in the given tick
+     *
+     * @param row  The row of the cell
+     * @param col  The column of the cell
+     * @param tick The tick to check
+     * @return The identifier of the robot, or 0 if the cell is not reserved
+     */
+    public synchronized int holder(int row, int col, long tick) {
+        long key = key(row, col, tick);
+        int slot = find(key);
+        return keys[slot] == key ? holders[slot] : 0;
+    }
+
+    /**
+     * Checks whether the robot may use the cell in the given tick
+     *
+     * @param row     The row of the cell
+     * @param col     The column of the cell
+     * @param tick    The tick to check
+     * @param robotId The identifier of the robot
+     * @return true if the cell is free or reserved by the robot itself, false otherwise
+     */
+    public boolean isAvailable(int row, int col, long tick, int robotId) {
+        int holder = holder(row, col, tick);
+        return holder == 0 || holder == robotId;
+    }
+
+    /**
+     * Drops all reservations of ticks before the given one
+     *
+     * @param tick The current tick
+     */
+    public synchronized void advance(long tick) {
+        if (tick <= oldestTick) {
+            return;
+        }
+        oldestTick = tick;
+        resize(keys.length); // rehashing keeps only the reservations which are not over
+    }
+
+    /**
+     * Removes all reservations
+     */
+    public synchronized void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of active reservations
+     *
+     * @return The number of reservations
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private long key(int row, int col, long tick) {
+        return (tick << 32) | (row * cols + col);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldHolders = holders;
+        keys = new long[capacity];
+        holders = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && (oldKeys[i] >>> 32) >= oldestTick) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                holders[slot] = oldHolders[i];
+                size++;
+            }
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
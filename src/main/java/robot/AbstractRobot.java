@@ -0,0 +1,595 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.robot;
+
+import main.java.common.Environment;
+import main.java.common.Position;
+import main.java.common.Robot;
+import main.java.navigation.FlowField;
+import main.java.simulation.SimulationManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class of all robots. It keeps the state shared by every robot type: identity,
+ * position, orientation, speed and observers, and it commits movements to the environment.
+ * <p>
+ * Motion driven by the simulation clock uses fixed-point arithmetic: the velocity is kept in sub-cells per second
+ * and the robot accumulates the distance travelled towards the next cell, so ticks can be much shorter than the time
+ * needed for one cell. The environment indexes the robot only by its cell, a tick within the cell is still a change
+ * of the environment, so it is drawn and saved in the history.
+ */
+public abstract class AbstractRobot implements Robot {
+    public static final int SUBCELL_BITS = 16;
+    public static final int SUBCELLS = 1 << SUBCELL_BITS; // fixed-point units of one cell
+    private static final int[] DIRECTION_ROWS = {-1, -1, 0, 1, 1, 1, 0, -1}; // row step for every 45 degrees
+    private static final int[] DIRECTION_COLS = {0, 1, 1, 1, 0, -1, -1, -1}; // column step for every 45 degrees
+    protected final Environment env;
+    protected Position position;
+    protected int angle;
+    protected final int speed;
+    protected final SimulationManager simulationManager;
+    private int velocity; // sub-cells per second
+    private int progress; // sub-cells travelled from the current cell towards the next one
+    private long blockedTick = -1; // last tick in which the robot could not move where it wanted
+    private int id;
+    private final List<Observer> observers = new ArrayList<>();
+    private static final Logger logger = LogManager.getLogger(AbstractRobot.class);
+
+    /**
+     * Initializes the state shared by all robots
+     *
+     * @param env      The environment in which the robot operates
+     * @param position The initial position of the robot
+     * @param speed    The speed of the robot
+     * @param angle    The initial angle of the robot
+     */
+    protected AbstractRobot(Environment env, Position position, int speed, int angle) {
+        this.env = env;
+        this.position = position;
+        this.speed = speed;
+        this.angle = angle;
+        this.velocity = speed << SUBCELL_BITS;
+        this.simulationManager = SimulationManager.getInstance(env);
+    }
+
+    /**
+     * Returns the identifier of the robot
+     *
+     * @return The identifier of the robot, 0 if it was not assigned yet
+     */
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the identifier of the robot
+     *
+     * @param id The identifier of the robot
+     */
+    @Override
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public void addObserver(Observer observer) {
+        if (!observers.contains(observer)) {
+            observers.add(observer);
+        }
+    }
+
+    @Override
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    @Override
+    public void notifyObservers() {
+        if (env.deferNotification(this)) {
+            return; // notified once when the batch of the environment is committed
+        }
+        for (Observer observer : observers) {
+            observer.update(this);
+        }
+    }
+
+    /**
+     * Returns the current angle of the robot's orientation
+     *
+     * @return The angle of the robot
+     */
+    @Override
+    public int angle() {
+        return angle;
+    }
+
+    /**
+     * Returns the current position of the robot
+     *
+     * @return The current position of the robot
+     */
+    @Override
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the speed of the robot
+     *
+     * @return The speed of the robot
+     */
+    @Override
+    public int getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Returns the velocity of the robot used by the simulation clock
+     *
+     * @return The velocity in sub-cells per second, {@link #SUBCELLS} is one cell per second
+     */
+    public int getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * Sets the velocity of the robot used by the simulation clock, which allows fractional speeds.
+     * The robot still moves at most its speed in cells per tick.
+     *
+     * @param velocity The velocity in sub-cells per second, {@link #SUBCELLS} is one cell per second
+     */
+    public void setVelocity(int velocity) {
+        if (velocity < 0) {
+            throw new IllegalArgumentException("Velocity must not be negative");
+        }
+        this.velocity = velocity;
+    }
+
+    /**
+     * Returns how far the robot has travelled from its cell towards the next cell in its direction
+     *
+     * @return The distance in sub-cells, between 0 and {@link #SUBCELLS} - 1
+     */
+    public int getProgress() {
+        return progress;
+    }
+
+    /**
+     * Sets the distance travelled towards the next cell, used when a saved state is restored
+     *
+     * @param progress The distance in sub-cells, between 0 and {@link #SUBCELLS} - 1
+     */
+    public void restoreProgress(int progress) {
+        if (progress < 0 || progress >= SUBCELLS) {
+            throw new IllegalArgumentException("Progress must be between 0 and " + (SUBCELLS - 1));
+        }
+        this.progress = progress;
+    }
+
+    /**
+     * Returns the number of cells the robot reaches in the current tick, counting the cell it only enters partly
+     *
+     * @return The number of cells, at most the speed of the robot
+     */
+    public int reach() {
+        return (Math.min(progress + travel(), speed << SUBCELL_BITS) + SUBCELLS - 1) >> SUBCELL_BITS;
+    }
+
+    /**
+     * Returns the distance the robot travels in one tick of the simulation clock
+     *
+     * @return The distance in sub-cells
+     */
+    private int travel() {
+        return (int) Math.min(Integer.MAX_VALUE / 2, (long) velocity * simulationManager.getTickMillis() / 1000);
+    }
+
+    /**
+     * Checks whether the robot was blocked in the current tick of the simulation,
+     * that is it wanted to move but an obstacle, the border or another robot was in its way
+     *
+     * @return true if the robot was blocked, false otherwise
+     */
+    public boolean isBlocked() {
+        return blockedTick == simulationManager.getTick();
+    }
+
+    /**
+     * Records that the robot could not move where it wanted in the current tick
+     */
+    protected void markBlocked() {
+        blockedTick = simulationManager.getTick();
+    }
+
+    /**
+     * Returns the maximum number of steps the robot can move
+     *
+     * @return The maximum number of steps the robot can move
+     */
+    public int maxMovableSteps() {
+        return movableSteps(speed);
+    }
+
+    /**
+     * Returns the number of steps the robot can move, up to the given limit
+     *
+     * @param limit The most steps to check
+     * @return The number of steps the robot can move
+     */
+    private int movableSteps(int limit) {
+        int steps = 0;
+        for (int step = 1; step <= limit; step++) {
+            Position nextPosition = calculateNextPosition(step);
+            if (!canEnter(nextPosition)) {
+                break; // obstacle detected
+            }
+            steps = step;
+        }
+        return steps;
+    }
+
+    /**
+     * Checks whether the robot can enter the cell in the current tick.
+     * The cell has to be inside the environment, empty and not reserved by another robot.
+     *
+     * @param p The cell to check
+     * @return true if the robot can enter the cell, false otherwise
+     */
+    protected boolean canEnter(Position p) {
+        return env.containsPosition(p) && !env.obstacleAt(p) && !env.robotAt(p)
+                && simulationManager.getReservations().isAvailable(p.getRow(), p.getCol(), simulationManager.getTick(), id);
+    }
+
+    /**
+     * Reserves the cell the robot is going to enter in the next tick, so other robots keep out of its way
+     *
+     * @param p The cell to reserve
+     */
+    protected void reserveNext(Position p) {
+        if (env.containsPosition(p)) {
+            simulationManager.getReservations().reserve(p.getRow(), p.getCol(), simulationManager.getTick() + 1, id);
+        }
+    }
+
+    /**
+     * Checks whether the robot blocking the given cell wants to move into the cell of this robot,
+     * which would leave both robots stuck unless one of them steps aside
+     *
+     * @param blocked The cell this robot wants to enter
+     * @return true if the robots want to swap their cells, false otherwise
+     */
+    protected boolean isHeadOn(Position blocked) {
+        Robot other = env.getRobotAt(blocked);
+        return other != null && other != this && simulationManager.getReservations()
+                .holder(position.getRow(), position.getCol(), simulationManager.getTick()) == other.getId();
+    }
+
+    /**
+     * Returns the neighbouring cell in the direction of the angle
+     *
+     * @param from  The cell to step from
+     * @param angle The angle of the step
+     * @return The neighbouring cell
+     */
+    protected static Position step(Position from, int angle) {
+        return new Position(from.getRow() + DIRECTION_ROWS[angle / 45], from.getCol() + DIRECTION_COLS[angle / 45]);
+    }
+
+    /**
+     * Returns the row difference of one step in the direction of the angle
+     *
+     * @param angle The angle, a multiple of 45 between 0 and 315
+     * @return The row difference
+     */
+    public static int rowStep(int angle) {
+        return DIRECTION_ROWS[angle / 45];
+    }
+
+    /**
+     * Returns the column difference of one step in the direction of the angle
+     *
+     * @param angle The angle, a multiple of 45 between 0 and 315
+     * @return The column difference
+     */
+    public static int colStep(int angle) {
+        return DIRECTION_COLS[angle / 45];
+    }
+
+    /**
+     * Moves the robot along the flow field towards its goal.
+     * The robot faces the direction of the field and moves up to its speed while the field points the same way.
+     *
+     * @param field The flow field to follow
+     * @return true if the robot has moved, false if it is at the goal, cannot reach it or is blocked
+     */
+    public boolean followFlowField(FlowField field) {
+        Position current = position;
+        int heading = -1;
+        int steps = 0;
+        while (steps < speed) {
+            int dir = field.angleAt(current);
+            if (dir < 0 || (heading >= 0 && dir != heading)) {
+                break; // goal reached or the route turns, the robot moves straight within one tick
+            }
+            Position next = step(current, dir);
+            if (!canEnter(next)) {
+                if (steps == 0) {
+                    heading = sidestep(field, dir);
+                    if (heading >= 0) {
+                        current = step(current, heading);
+                        steps = 1;
+                    }
+                }
+                break;
+            }
+            heading = dir;
+            current = next;
+            steps++;
+        }
+        if (steps == 0) {
+            if (field.angleAt(position) >= 0) {
+                markBlocked();
+            }
+            return false;
+        }
+        simulationManager.saveState();
+        moveTo(current, heading);
+        int nextDir = field.angleAt(position);
+        if (nextDir >= 0) {
+            reserveNext(step(position, nextDir));
+        }
+        notifyObservers();
+        return true;
+    }
+
+    /**
+     * Finds another direction when the cell the flow field points to is taken.
+     * A cell closer to the goal is always accepted, a cell as far from the goal only when
+     * the blocking robot is coming the opposite way, so the two robots can pass each other.
+     *
+     * @param field   The flow field the robot follows
+     * @param blocked The angle of the blocked direction
+     * @return The angle of the alternative step, or -1 if there is none
+     */
+    private int sidestep(FlowField field, int blocked) {
+        int distance = field.distanceAt(position);
+        boolean headOn = isHeadOn(step(position, blocked));
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int turn : new int[]{45, -45, 90, -90}) {
+            int dir = (blocked + turn + 360) % 360;
+            Position candidate = step(position, dir);
+            if (!canEnter(candidate)) {
+                continue;
+            }
+            int candidateDistance = field.distanceAt(candidate);
+            if (candidateDistance >= 0 && candidateDistance < bestDistance
+                    && (candidateDistance < distance || (headOn && candidateDistance == distance))) {
+                best = dir;
+                bestDistance = candidateDistance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Moves the robot forward by the distance of one tick, but at most the given number of cells.
+     * The distance is added to the progress towards the next cell, the robot enters the environment's cells it
+     * has fully crossed and keeps the rest. A robot that is blocked, or stopped by the limit, stops at the boundary
+     * of its cell and loses the rest of the distance. A robot blocked by another one coming the opposite way
+     * steps aside instead, and a robot heading on reserves the cell ahead for the next tick.
+     *
+     * @param steps The most cells the robot wants to cross, limited by its speed
+     * @return The number of cells the robot has crossed
+     */
+    public int advance(int steps) {
+        int budget = Math.min(progress + travel(), speed << SUBCELL_BITS); // never more than the speed per tick
+        int needed = (budget + SUBCELLS - 1) >> SUBCELL_BITS; // cells entered at least partly
+        int movable = movableSteps(Math.min(needed, steps));
+        if (movable == 0 && needed > 0 && steps > 0 && sidestepHeadOn()) {
+            return 1;
+        }
+        int moved = movable;
+        int rest = 0;
+        if (needed <= steps && movable == needed) {
+            moved = budget >> SUBCELL_BITS;
+            rest = budget & (SUBCELLS - 1);
+        } else if (movable < Math.min(needed, steps)) {
+            markBlocked();
+        }
+        if (moved > 0) {
+            simulationManager.saveState(); // before the progress changes, so the state is saved as it was
+            moveTo(calculateNextPosition(moved), angle, rest);
+            notifyObservers();
+        } else if (rest != progress) { // travelled within the cell, or lost the way travelled when blocked
+            simulationManager.saveState();
+            advanceTo(rest);
+            notifyObservers();
+        }
+        if (budget > 0 && steps > 0) {
+            reserveAhead();
+        }
+        return moved;
+    }
+
+    /**
+     * Reserves the cell in front of the robot for the next tick, unless it is an obstacle or outside the environment
+     */
+    protected void reserveAhead() {
+        Position ahead = step(position, angle);
+        if (!env.obstacleAt(ahead)) {
+            reserveNext(ahead);
+        }
+    }
+
+    /**
+     * Steps aside when the robot in front is coming the opposite way, which would leave both robots stuck.
+     * The robot moves to a free cell diagonally ahead or beside it and keeps its angle,
+     * so the two robots pass each other on parallel lines.
+     *
+     * @return true if the robot stepped aside, false if nobody is coming head-on or there is no room
+     */
+    protected boolean sidestepHeadOn() {
+        if (!isHeadOn(step(position, angle))) {
+            return false;
+        }
+        for (int turn : new int[]{45, -45, 90, -90}) {
+            Position candidate = step(position, (angle + turn + 360) % 360);
+            if (canEnter(candidate)) {
+                simulationManager.saveState();
+                moveTo(candidate, angle, 0);
+                reserveAhead();
+                notifyObservers();
+                logger.info("Stepped aside to position: col = {}, row = {}", position.getCol(), position.getRow());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Turns the robot to face the given angle, used to carry out the intents of behaviours
+     *
+     * @param newAngle The angle to face, a multiple of 45 between 0 and 315
+     */
+    public void face(int newAngle) {
+        if (newAngle != angle) {
+            simulationManager.saveState();
+            turnTo(newAngle);
+            notifyObservers();
+        }
+    }
+
+    /**
+     * Turns the robot to the given angle and lets the environment know about the change
+     *
+     * @param newAngle The new angle of the robot
+     */
+    protected void turnTo(int newAngle) {
+        env.turnRobot(this, () -> {
+            angle = newAngle;
+            progress = 0; // the robot starts towards another cell
+        });
+    }
+
+    /**
+     * Sets the distance the robot has travelled within its cell and lets the environment count the change
+     *
+     * @param newProgress The distance travelled from the current position, in sub-cells
+     */
+    private void advanceTo(int newProgress) {
+        env.advanceRobot(this, () -> progress = newProgress);
+    }
+
+    /**
+     * Moves the robot to the given position, the environment updates its indexes together with the position
+     *
+     * @param next The new position of the robot
+     */
+    protected void moveTo(Position next) {
+        moveTo(next, angle);
+    }
+
+    /**
+     * Moves the robot to the given position facing the given angle, both in one change of the environment
+     *
+     * @param next     The new position of the robot
+     * @param newAngle The new angle of the robot
+     */
+    protected void moveTo(Position next, int newAngle) {
+        moveTo(next, newAngle, progress);
+    }
+
+    /**
+     * Moves the robot to the given position and sets its angle and its progress towards the next cell in the same change
+     *
+     * @param next        The new position of the robot
+     * @param newAngle    The new angle of the robot
+     * @param newProgress The distance travelled from the new position, in sub-cells
+     */
+    private void moveTo(Position next, int newAngle, int newProgress) {
+        env.moveRobot(this, () -> {
+            position = next;
+            angle = newAngle;
+            progress = newProgress;
+        });
+    }
+
+    /**
+     * Calculates the next position of the robot after moving a specified number of steps
+     *
+     * @param step The number of steps to move
+     * @return The next position of the robot
+     */
+    public Position calculateNextPosition(int step) {
+        int dx = 0;
+        int dy = 0;
+        switch (angle) {
+            case 0:
+                dy = -1;
+                break;
+            case 45:
+                dx = 1; dy = -1;
+                break;
+            case 90:
+                dx = 1;
+                break;
+            case 135:
+                dx = 1; dy = 1;
+                break;
+            case 180:
+                dy = 1;
+                break;
+            case 225:
+                dx = -1; dy = 1;
+                break;
+            case 270:
+                dx = -1;
+                break;
+            case 315:
+                dx = -1; dy = -1;
+                break;
+        }
+        return new Position(position.getRow() + (dy * step), position.getCol() + (dx * step));
+    }
+
+    /**
+     * Returns the angle pointing in the direction of the given step
+     *
+     * @param dRow The row difference of the step
+     * @param dCol The column difference of the step
+     * @return The angle of the direction, or -1 if the step has no direction
+     */
+    public static int angleOf(int dRow, int dCol) {
+        for (int i = 0; i < DIRECTION_ROWS.length; i++) {
+            if (DIRECTION_ROWS[i] == Integer.signum(dRow) && DIRECTION_COLS[i] == Integer.signum(dCol)) {
+                return i * 45;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a deep copy of the robot
+     *
+     * @return A deep copy of the robot
+     */
+    @Override
+    public AbstractRobot clone() {
+        try {
+            AbstractRobot cloned = (AbstractRobot) super.clone();
+            cloned.position = new Position(this.position.getRow(), this.position.getCol());
+            return cloned;
+        } catch (CloneNotSupportedException e) {
+            logger.error("Failed to clone {}", getClass().getSimpleName());
+            throw new AssertionError();  // must not happen since we are Cloneable
+        }
+    }
+}
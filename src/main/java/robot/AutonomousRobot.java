@@ -6,57 +6,28 @@ package main.java.robot;
 
 import main.java.common.Environment;
 import main.java.common.Position;
-import main.java.common.Robot;
 
-import main.java.simulation.SimulationManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Represents an autonomous robot that can automatically move and avoid obstacles.
  * This robot interacts with the environment, maintains its position and state, and
  * moves automatically based on its internal logic.
  */
-public class AutonomousRobot implements Robot {
-    private final Environment env;
-    private Position position;
-    private int angle;
+public class AutonomousRobot extends AbstractRobot {
     private final int detectionRange; // Distance to detect obstacles
     private final int turnAngle; // Angle to turn when an obstacle is detected
     private final boolean turnDirection;
-    private final int speed;
-    private final List<Observer> observers = new ArrayList<>();
+    private static final int MAX_WAIT_TICKS = 1; // ticks to wait for a robot in the way before turning away
+    private int waitedTicks;
     private static final Logger logger = LogManager.getLogger(AutonomousRobot.class);
-    private Timer movementTimer;
-    private final SimulationManager simulationManager;
     public boolean isMoveable = false;
     public AutonomousRobot(Environment env, Position position, int speed, int detectionRange, int turnAngle, boolean turnDirection, int angle) {
-        this.env = env;
-        this.position = position;
+        super(env, position, speed, angle);
         this.detectionRange = detectionRange;
         this.turnAngle = turnAngle;
         this.turnDirection = turnDirection;
-        this.speed = speed;
-        this.simulationManager = SimulationManager.getInstance(env);
-        this.angle = angle;
-    }
-
-    /**
-     * Initializes the movement of the robot
-     */
-    public void initMovement() {
-        movementTimer = new Timer();
-        movementTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                move();  // move the robot
-                notifyObservers();  // notify observers
-            }
-        }, 0, 1000);  // init movement with 1 second delay
     }
 
     /**
@@ -75,8 +46,7 @@ public class AutonomousRobot implements Robot {
         if (env.containsPosition(pos) && !env.robotAt(pos)) {
             AutonomousRobot robot = new AutonomousRobot(env, pos, speed, detectionRange, turnAngle, turnDirection, startAngle);
             if (env.addRobot(robot)) {
-                //robot.initMovement();
-                logger.info("Added a new AutonomousRobot at position: col = {}, row = {}", pos.getCol(), pos.getRow());
+                logger.info("Added a new AutonomousRobot #{} at position: col = {}, row = {}", robot.getId(), pos.getCol(), pos.getRow());
                 return robot;
             }
         }
@@ -84,36 +54,6 @@ public class AutonomousRobot implements Robot {
         return null;
     }
 
-    @Override
-    public void addObserver(Observer observer) {
-        if (!observers.contains(observer)) {
-            observers.add(observer);
-        }
-    }
-
-    @Override
-    public void removeObserver(Observer observer) {
-        observers.remove(observer);
-    }
-
-    @Override
-    public void notifyObservers() {
-        for (Observer observer : observers) {
-            observer.update(this);
-        }
-    }
-
-    /**
-     * Stops the movement of the robot
-     */
-    public void stopMovement() {
-        if (movementTimer != null) {
-            movementTimer.cancel();  // Остановка таймера
-            movementTimer.purge();   // Удаление всех задач
-            movementTimer = null;
-        }
-    }
-
     /**
      * Turns the robot
      */
@@ -121,24 +61,14 @@ public class AutonomousRobot implements Robot {
     public void turn() {
         simulationManager.saveState();
         if (turnDirection) {
-            angle = (angle + turnAngle) % 360;
+            turnTo((angle + turnAngle) % 360);
             logger.info("Turned right to angle: {}", angle);
         } else {
-            angle = (angle - turnAngle + 360) % 360;
+            turnTo((angle - turnAngle + 360) % 360);
             logger.info("Turned left to angle: {}", angle);
         }
     }
 
-    /**
-     * Returns the current angle of the robot's orientation
-     *
-     * @return The angle of the robot
-     */
-    @Override
-    public int angle() {
-        return angle;
-    }
-
     /**
      * Checks whether the robot can move in its current direction
      *
@@ -150,52 +80,35 @@ public class AutonomousRobot implements Robot {
     }
 
     /**
-     * Returns the maximum number of steps the robot can move
-     *
-     * @return The maximum number of steps the robot can move
-     */
-    public int maxMovableSteps() {
-        int steps = 0;
-        for (int i = 1; i <= speed; i++) {
-            Position nextPosition = calculateNextPosition(i);
-            if (!env.containsPosition(nextPosition) || env.robotAt(nextPosition) || env.obstacleAt(nextPosition)) {
-                break; // obstacle detected
-            }
-            steps = i;
-        }
-        return steps;
-    }
-
-    /**
-     * Moves the robot
+     * Moves the robot.
+     * A robot coming the opposite way is passed by stepping aside, for any other robot or reservation in the way
+     * the robot waits a tick with the cell reserved before it turns away, as it does in front of an obstacle.
      */
     @Override
     public void move() {
         if (canMove()) {
-            simulationManager.saveState();
-            int movableSteps = maxMovableSteps();  // determine the maximum number of steps the robot can move
-            if (movableSteps > 0) {
-                this.position = calculateNextPosition(movableSteps);
-                notifyObservers();
+            waitedTicks = 0;
+            // the position indexes change only when the robot crosses into another cell
+            if (advance(speed) > 0) {
                 logger.info("Moved to position: col = {}, row = {}", position.getCol(), position.getRow());
             }
         } else if (isMoveable) {
-            // obstacle detected
+            if (sidestepHeadOn()) {
+                waitedTicks = 0;
+                return;
+            }
+            markBlocked();
+            Position ahead = step(position, angle);
+            if (env.containsPosition(ahead) && !env.obstacleAt(ahead) && ++waitedTicks <= MAX_WAIT_TICKS) {
+                reserveNext(ahead); // another robot is in the way, it may move on
+                return;
+            }
+            waitedTicks = 0;
             turn();
             logger.info("Detected an obstacle within detection range, turned to angle: {}", angle);
         }
     }
 
-    /**
-     * Returns the current position of the robot
-     *
-     * @return The current position of the robot
-     */
-    @Override
-    public Position getPosition() {
-        return position;
-    }
-
     /**
      * Returns a deep copy of the robot
      *
@@ -203,61 +116,7 @@ public class AutonomousRobot implements Robot {
      */
     @Override
     public AutonomousRobot clone() {
-        try {
-            AutonomousRobot cloned = (AutonomousRobot) super.clone();
-            cloned.position = new Position(this.position.getRow(), this.position.getCol());
-            return cloned;
-        } catch (CloneNotSupportedException e) {
-            logger.error("Failed to clone AutonomousRobot");
-            throw new AssertionError();  // must not happen since we are Cloneable
-        }
-    }
-
-    /**
-     * Calculates the next position of the robot
-     *
-     * @param step The number of steps to move
-     * @return The next position of the robot
-     */
-    public Position calculateNextPosition(int step) {
-        int dx = 0, dy = 0;
-        switch (angle) {
-            case 0:
-                dy = -1;
-                break;
-            case 45:
-                dx = 1; dy = -1;
-                break;
-            case 90:
-                dx = 1;
-                break;
-            case 135:
-                dx = 1; dy = 1;
-                break;
-            case 180:
-                dy = 1;
-                break;
-            case 225:
-                dx = -1; dy = 1;
-                break;
-            case 270:
-                dx = -1;
-                break;
-            case 315:
-                dx = -1; dy = -1;
-                break;
-        }
-        return new Position(position.getRow() + (dy * step), position.getCol() + (dx * step));
-    }
-
-    /**
-     * Returns the speed of the robot
-     *
-     * @return The speed of the robot
-     */
-    @Override
-    public int getSpeed() {
-        return speed;
+        return (AutonomousRobot) super.clone();
     }
 
     /**
@@ -294,6 +153,7 @@ public class AutonomousRobot implements Robot {
      */
     public String toString() {
         return "AutonomousRobot\n"
+                + "id=" + getId() + "\n"
                 + "positionRow=" + position.getRow() + "\n"
                 + "positionCol=" + position.getCol() + "\n"
                 + "detectionRange=" + detectionRange + "\n"
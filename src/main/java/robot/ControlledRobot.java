@@ -6,37 +6,29 @@ package main.java.robot;
 
 import main.java.common.Environment;
 import main.java.common.Position;
-import main.java.common.Robot;
 
-import main.java.simulation.SimulationManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a controlled robot that can move and turn based on user input.
  * This robot interacts with the environment and maintains its position and state.
+ * It can also be sent to a cell, the planned path is then executed one step per simulation tick.
  */
-public class ControlledRobot implements Robot {
-    private final Environment env;
-    private Position position;
-    private int angle;
-    private final int speed;
-    private final List<Observer> observers = new ArrayList<>();
+public class ControlledRobot extends AbstractRobot {
     private static final Logger logger = LogManager.getLogger(ControlledRobot.class);
+    private static final int MAX_WAIT_TICKS = 3; // ticks to wait for a robot blocking the path before giving up
     private boolean active;
+    private List<Position> path;
+    private int pathIndex;
+    private int waitedTicks;
 
     public boolean canControlled = false;
-    private final SimulationManager simulationManager;
 
     public ControlledRobot(Environment env, Position position, int speed, int angle) {
-        this.env = env;
-        this.position = position;
-        this.speed = speed;
-        this.simulationManager = SimulationManager.getInstance(env);
-        this.angle = angle;
+        super(env, position, speed, angle);
         this.active = false;
     }
 
@@ -56,25 +48,6 @@ public class ControlledRobot implements Robot {
         return active;
     }
 
-    @Override
-    public void addObserver(Observer observer) {
-        if (!observers.contains(observer)) {
-            observers.add(observer);
-        }
-    }
-
-    @Override
-    public void removeObserver(Observer observer) {
-        observers.remove(observer);
-    }
-
-    @Override
-    public void notifyObservers() {
-        for (Observer observer : observers) {
-            observer.update(this);
-        }
-    }
-
     /**
      * Creates an instance of ControlledRobot and places it at the specified position within the given environment
      *
@@ -86,7 +59,7 @@ public class ControlledRobot implements Robot {
         if (env.containsPosition(pos) && !env.robotAt(pos)) {
             ControlledRobot robot = new ControlledRobot(env, pos, speed, startAngle);
             if (env.addRobot(robot)) {
-                logger.info("Added a new ControlledRobot at position: col = {}, row = {}", pos.getCol(), pos.getRow());
+                logger.info("Added a new ControlledRobot #{} at position: col = {}, row = {}", robot.getId(), pos.getCol(), pos.getRow());
                 return robot;
             }
         }
@@ -94,16 +67,6 @@ public class ControlledRobot implements Robot {
         return null;
     }
 
-    /**
-     * Returns the angle of the robot
-     *
-     * @return The angle of the robot
-     */
-    @Override
-    public int angle() {
-        return angle;
-    }
-
     /**
      * Checks whether the robot can move
      *
@@ -115,47 +78,127 @@ public class ControlledRobot implements Robot {
     }
 
     /**
-     * Returns the current position of the robot
+     * Returns a deep copy of the robot
      *
-     * @return The current position of the robot
+     * @return A deep copy of the robot
      */
     @Override
-    public Position getPosition() {
-        return position;
+    public ControlledRobot clone() {
+        return (ControlledRobot) super.clone();
     }
 
     /**
-     * Returns a deep copy of the robot
+     * Plans a path to the given cell, the robot follows it during the next simulation ticks
      *
-     * @return A deep copy of the robot
+     * @param goal The cell to go to
+     * @return true if a path was found, false otherwise
      */
-    @Override
-    public ControlledRobot clone() {
-        try {
-            ControlledRobot cloned = (ControlledRobot) super.clone();
-            cloned.position = new Position(this.position.getRow(), this.position.getCol());
-            return cloned;
-        } catch (CloneNotSupportedException e) {
-            logger.error("Failed to clone the ControlledRobot object.");
-            throw new AssertionError();  // must not happen since we are Cloneable
+    public boolean goTo(Position goal) {
+        List<Position> planned = simulationManager.getPathPlanner().findPath(position, goal);
+        if (planned == null) {
+            logger.warn("No path to position: col = {}, row = {}", goal.getCol(), goal.getRow());
+            return false;
         }
+        path = planned;
+        pathIndex = 0;
+        waitedTicks = 0;
+        logger.info("Planned a path of {} steps to position: col = {}, row = {}", planned.size(), goal.getCol(), goal.getRow());
+        return true;
     }
 
     /**
-     * Returns the maximum number of steps the robot can move
+     * Checks whether the robot has a planned path which is not finished yet
      *
-     * @return The maximum number of steps the robot can move
+     * @return true if the robot is following a path, false otherwise
      */
-    public int maxMovableSteps() {
-        int steps = 0;
-        for (int step = 1; step <= speed; step++) {
-            Position nextPosition = calculateNextPosition(step);
-            if (!env.containsPosition(nextPosition) || env.obstacleAt(nextPosition) || env.robotAt(nextPosition)) {
+    public boolean hasPath() {
+        return path != null && pathIndex < path.size();
+    }
+
+    /**
+     * Cancels the planned path
+     */
+    public void cancelPath() {
+        path = null;
+    }
+
+    /**
+     * Takes the next step along the planned path.
+     * The robot faces the direction of the path and moves up to its speed while the path goes straight.
+     * If the path is blocked by another robot, it waits a few ticks and then gives up.
+     */
+    public void followPath() {
+        if (!hasPath() || !canControlled) {
+            return;
+        }
+        Position next = path.get(pathIndex);
+        if (Math.max(Math.abs(next.getRow() - position.getRow()), Math.abs(next.getCol() - position.getCol())) != 1
+                || env.obstacleAt(next)) {
+            // the robot was moved or the map has changed since the path was planned
+            if (!goTo(path.get(path.size() - 1)) || !hasPath()) {
+                path = null;
+                return;
+            }
+            next = path.get(pathIndex);
+        }
+        if (!canEnter(next)) {
+            if (isHeadOn(next) && sidestep(next)) {
+                return;
+            }
+            markBlocked();
+            if (++waitedTicks > MAX_WAIT_TICKS) {
+                logger.warn("Path is blocked by another robot at position: col = {}, row = {}", next.getCol(), next.getRow());
+                path = null;
+            }
+            return;
+        }
+        waitedTicks = 0;
+
+        int dRow = next.getRow() - position.getRow();
+        int dCol = next.getCol() - position.getCol();
+        int steps = 1;
+        while (steps < speed && pathIndex + steps < path.size()) {
+            Position previous = path.get(pathIndex + steps - 1);
+            Position following = path.get(pathIndex + steps);
+            if (following.getRow() - previous.getRow() != dRow || following.getCol() - previous.getCol() != dCol
+                    || !canEnter(following)) {
                 break;
             }
-            steps = step;  // Update the number of steps if the current step is valid
+            steps++;
         }
-        return steps;
+
+        simulationManager.saveState();
+        pathIndex += steps;
+        moveTo(path.get(pathIndex - 1), angleOf(dRow, dCol));
+        if (hasPath()) {
+            reserveNext(path.get(pathIndex));
+        } else {
+            path = null;
+        }
+        notifyObservers();
+        logger.info("Moved along the path to position: col = {}, row = {}", position.getCol(), position.getRow());
+    }
+
+    /**
+     * Steps aside to a free cell from which the next cell of the path can still be reached,
+     * letting a robot coming the opposite way pass
+     *
+     * @param next The next cell of the path
+     * @return true if the robot stepped aside, false if there is no room
+     */
+    private boolean sidestep(Position next) {
+        for (int dir = 0; dir < 360; dir += 45) {
+            Position candidate = step(position, dir);
+            if (!candidate.equals(next) && canEnter(candidate)
+                    && Math.max(Math.abs(candidate.getRow() - next.getRow()), Math.abs(candidate.getCol() - next.getCol())) == 1) {
+                simulationManager.saveState();
+                moveTo(candidate, dir);
+                notifyObservers();
+                logger.info("Stepped aside to position: col = {}, row = {}", position.getCol(), position.getRow());
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -164,8 +207,9 @@ public class ControlledRobot implements Robot {
     @Override
     public void move() {
         if (canMove()) {
+            path = null;
             simulationManager.saveState();
-            this.position = calculateNextPosition(maxMovableSteps());
+            moveTo(calculateNextPosition(maxMovableSteps()));
             notifyObservers();
             logger.info("Moved to position: col = {}, row = {}", position.getCol(), position.getRow());
         }
@@ -177,8 +221,9 @@ public class ControlledRobot implements Robot {
     @Override
     public void turn() {
         if (canControlled) {
+            path = null;
             simulationManager.saveState();
-            angle = (angle + 45) % 360;
+            turnTo((angle + 45) % 360);
             notifyObservers();
             logger.info("Turned clockwise to angle: {}", angle);
         }
@@ -189,61 +234,14 @@ public class ControlledRobot implements Robot {
      */
     public void turnCounterClockwise() {
         if (canControlled) {
+            path = null;
             simulationManager.saveState();
-            angle = (angle - 45 + 360) % 360;
+            turnTo((angle - 45 + 360) % 360);
             notifyObservers();
             logger.info("Turned counterclockwise to angle: {}", angle);
         }
     }
 
-    /**
-     * Calculates the next position of the robot after moving a specified number of steps
-     *
-     * @param step The number of steps to move
-     * @return The next position of the robot
-     */
-    public Position calculateNextPosition(int step) {
-        int dx = 0;
-        int dy = 0;
-        switch (angle) {
-            case 0:
-                dy = -1;
-                break;
-            case 45:
-                dx = 1; dy = -1;
-                break;
-            case 90:
-                dx = 1;
-                break;
-            case 135:
-                dx = 1; dy = 1;
-                break;
-            case 180:
-                dy = 1;
-                break;
-            case 225:
-                dx = -1; dy = 1;
-                break;
-            case 270:
-                dx = -1;
-                break;
-            case 315:
-                dx = -1; dy = -1;
-                break;
-        }
-        return new Position(position.getRow() + (dy * step), position.getCol() + (dx * step));
-    }
-
-    /**
-     * Returns the speed of the robot
-     *
-     * @return The speed of the robot
-     */
-    @Override
-    public int getSpeed() {
-        return speed;
-    }
-
     /**
      * Return the string representation of the ControlledRobot
      *
@@ -252,9 +250,9 @@ public class ControlledRobot implements Robot {
     @Override
     public String toString() {
         return "ControlledRobot\n"
+                + "id=" + getId() + "\n"
                 + "positionRow=" + position.getRow() + "\n"
                 + "positionCol=" + position.getCol() + "\n"
                 + "speed=" + speed + "\n";
     }
 }
-
@@ -0,0 +1,151 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+import main.java.behaviour.Behaviour;
+import main.java.behaviour.BehaviourContext;
+import main.java.common.Environment;
+import main.java.common.Robot;
+import main.java.robot.AbstractRobot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs the behaviours of the robots of one environment.
+ * Robots are grouped by their behaviour, the state of each group is copied into arrays which are reused from tick to tick,
+ * the behaviour decides the whole group in one call and the intents are then carried out robot by robot.
+ */
+final class BehaviourEngine {
+    private final Environment environment;
+    private final Map<Integer, Behaviour> behaviours = new HashMap<>(); // behaviour of the robots by their id
+    private final Map<Behaviour, List<AbstractRobot>> groups = new LinkedHashMap<>(); // groups of the current tick in order of their first robot
+    private BehaviourContext context;
+    private int[] ids = new int[0];
+    private int[] rows = new int[0];
+    private int[] cols = new int[0];
+    private int[] angles = new int[0];
+    private int[] speeds = new int[0];
+    private int[] intents = new int[0];
+
+    /**
+     * Creates the engine for the environment
+     *
+     * @param environment The environment whose robots are driven
+     */
+    BehaviourEngine(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Sets or clears the behaviour of the robot
+     *
+     * @param robotId   The identifier of the robot
+     * @param behaviour The behaviour, or null to clear it
+     */
+    void set(int robotId, Behaviour behaviour) {
+        if (behaviour == null) {
+            behaviours.remove(robotId);
+        } else {
+            behaviours.put(robotId, behaviour);
+        }
+    }
+
+    /**
+     * Returns the behaviour of the robot
+     *
+     * @param robotId The identifier of the robot
+     * @return The behaviour, or null if the robot has none
+     */
+    Behaviour get(int robotId) {
+        return behaviours.get(robotId);
+    }
+
+    /**
+     * Adds the robot to the group of its behaviour for the current tick
+     *
+     * @param robot     The robot
+     * @param behaviour The behaviour of the robot
+     */
+    void enqueue(AbstractRobot robot, Behaviour behaviour) {
+        groups.computeIfAbsent(behaviour, b -> new ArrayList<>()).add(robot);
+    }
+
+    /**
+     * Decides and carries out the intents of all enqueued robots, one group after another.
+     * Every group sees the fields taken by robots as they are when the group is decided.
+     *
+     * @param robots All robots of the environment
+     * @param random The random generator of the simulation
+     * @param tick   The current tick
+     */
+    void run(List<Robot> robots, Random random, long tick) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        if (context == null) {
+            context = new BehaviourContext(environment.getRows(), environment.getCols());
+        }
+        for (Map.Entry<Behaviour, List<AbstractRobot>> group : groups.entrySet()) {
+            context.reset(environment.snapshotObstacles(), random, tick);
+            for (Robot robot : robots) {
+                context.occupy(robot.getPosition().getRow(), robot.getPosition().getCol());
+            }
+            runGroup(group.getKey(), group.getValue());
+        }
+        groups.clear();
+    }
+
+    /**
+     * Copies the state of the group into the arrays, lets the behaviour decide and carries out the intents
+     */
+    private void runGroup(Behaviour behaviour, List<AbstractRobot> group) {
+        int count = group.size();
+        if (ids.length < count) {
+            int capacity = Math.max(count, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            cols = Arrays.copyOf(cols, capacity);
+            angles = Arrays.copyOf(angles, capacity);
+            speeds = Arrays.copyOf(speeds, capacity);
+            intents = Arrays.copyOf(intents, capacity);
+        }
+        for (int i = 0; i < count; i++) {
+            AbstractRobot robot = group.get(i);
+            ids[i] = robot.getId();
+            rows[i] = robot.getPosition().getRow();
+            cols[i] = robot.getPosition().getCol();
+            angles[i] = robot.angle();
+            speeds[i] = robot.reach();
+            intents[i] = Behaviour.STAY;
+        }
+        behaviour.decide(count, ids, rows, cols, angles, speeds, context, intents);
+        for (int i = 0; i < count; i++) {
+            int intent = intents[i];
+            if (Behaviour.isTurn(intent)) {
+                group.get(i).face(Behaviour.angleOf(intent));
+            } else if (intent > 0) {
+                group.get(i).advance(intent); // the cells are checked again, robots of the group may have taken them
+            }
+        }
+    }
+
+    /**
+     * Forgets all behaviours and releases them
+     */
+    void dispose() {
+        Map<Behaviour, Boolean> distinct = new IdentityHashMap<>();
+        behaviours.values().forEach(behaviour -> distinct.put(behaviour, Boolean.TRUE));
+        distinct.keySet().forEach(Behaviour::dispose);
+        behaviours.clear();
+        groups.clear();
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+import main.java.common.ChangeEvent;
+import main.java.common.ChangeListener;
+import main.java.common.Environment;
+import main.java.common.Position;
+import main.java.common.Robot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks which fields of the environment robots have visited, for all robots together and optionally for every robot.
+ * Visited fields are bits of a bitset over the grid, updated from the committed moves of the robots including
+ * the fields crossed in the middle of a longer move. The bitset is split into pages allocated on the first visit,
+ * so an untouched part of a large map costs nothing, the pages of a single robot are kept in a map
+ * since a robot usually visits a small part of the map. For every whole percent of coverage the tick
+ * in which it was reached is remembered. Coverage only grows, restoring an earlier state does not forget visits.
+ */
+public class CoverageTracker implements ChangeListener {
+    private static final int PAGE_BITS = 12; // 4096 fields per page
+
+    private final Environment environment;
+    private final SimulationManager manager;
+    private final int cols;
+    private final Bits visited;
+    private final long[] reachedAt = new long[101]; // tick in which every percent was reached, -1 until then
+    private int reachedPercent = -1;
+    private long obstacles; // counted again only when obstacles change, a snapshot of the grid is not free
+    private Map<Integer, Bits> robotVisits; // null unless coverage per robot is tracked
+
+    /**
+     * Creates the tracker with the fields the robots of the environment stand on as visited
+     *
+     * @param environment The environment to track
+     * @param manager     The manager of the simulation, giving the current tick
+     */
+    CoverageTracker(Environment environment, SimulationManager manager) {
+        this.environment = environment;
+        this.manager = manager;
+        this.cols = environment.getCols();
+        this.visited = new Bits((long) environment.getRows() * cols, false);
+        this.obstacles = environment.snapshotObstacles().size();
+        Arrays.fill(reachedAt, -1);
+    }
+
+    /**
+     * Enables or disables tracking of the fields visited by every robot, enabling it starts from the current fields
+     *
+     * @param enabled true to track every robot, false to track only all robots together
+     */
+    public synchronized void setPerRobot(boolean enabled) {
+        if (!enabled) {
+            robotVisits = null;
+        } else if (robotVisits == null) {
+            robotVisits = new HashMap<>();
+            environment.getRobots().forEach(robot -> visit(robot.getId(), robot.getPosition()));
+        }
+    }
+
+    /**
+     * Marks the fields entered by the committed moves
+     *
+     * @param events The changes of one batch
+     */
+    @Override
+    public synchronized void changed(List<ChangeEvent> events) {
+        boolean obstaclesChanged = false;
+        for (ChangeEvent event : events) {
+            if (event instanceof ChangeEvent.RobotMoved) {
+                ChangeEvent.RobotMoved moved = (ChangeEvent.RobotMoved) event;
+                visitLine(moved.getRobotId(), moved.getFrom(), moved.getTo());
+            } else if (event instanceof ChangeEvent.RobotAdded) {
+                visit(((ChangeEvent.RobotAdded) event).getRobotId(), ((ChangeEvent.RobotAdded) event).getCell());
+            } else if (event instanceof ChangeEvent.StateRestored) {
+                environment.getRobots().forEach(robot -> visit(robot.getId(), robot.getPosition()));
+                obstaclesChanged = true;
+            } else if (event instanceof ChangeEvent.ObstacleAdded || event instanceof ChangeEvent.ObstacleRemoved
+                    || event instanceof ChangeEvent.ObstaclesReplaced) {
+                obstaclesChanged = true;
+            }
+        }
+        if (obstaclesChanged) {
+            obstacles = environment.snapshotObstacles().size();
+        }
+        updateMilestones();
+    }
+
+    /**
+     * Marks the robots already in the environment, called once after the tracker is registered
+     */
+    synchronized void visitCurrent() {
+        for (Robot robot : environment.getRobots()) {
+            visit(robot.getId(), robot.getPosition());
+        }
+        updateMilestones();
+    }
+
+    /**
+     * Returns the number of fields visited by any robot
+     *
+     * @return The number of visited fields
+     */
+    public synchronized long getVisitedCount() {
+        return visited.count;
+    }
+
+    /**
+     * Returns the share of the free fields visited by any robot
+     *
+     * @return The coverage between 0 and 1
+     */
+    public synchronized double getCoverage() {
+        return share(visited.count);
+    }
+
+    /**
+     * Checks whether any robot has visited the field
+     *
+     * @param row The row of the field
+     * @param col The column of the field
+     * @return true if the field was visited, false otherwise
+     */
+    public synchronized boolean isVisited(int row, int col) {
+        return visited.get((long) row * cols + col);
+    }
+
+    /**
+     * Returns the tick in which the coverage first reached the given percentage
+     *
+     * @param percent The percentage between 0 and 100
+     * @return The tick, 0 if it was reached before the first tick, or -1 if it was not reached yet
+     */
+    public synchronized long getTickReaching(int percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Percentage must be between 0 and 100");
+        }
+        return reachedAt[percent];
+    }
+
+    /**
+     * Returns the number of fields visited by the robot
+     *
+     * @param robotId The identifier of the robot
+     * @return The number of fields visited by the robot
+     * @throws IllegalStateException if coverage per robot is not tracked
+     */
+    public synchronized long getVisitedCount(int robotId) {
+        if (robotVisits == null) {
+            throw new IllegalStateException("Coverage per robot is not tracked");
+        }
+        Bits bits = robotVisits.get(robotId);
+        return bits != null ? bits.count : 0;
+    }
+
+    /**
+     * Returns the share of the free fields visited by the robot
+     *
+     * @param robotId The identifier of the robot
+     * @return The coverage between 0 and 1
+     * @throws IllegalStateException if coverage per robot is not tracked
+     */
+    public synchronized double getCoverage(int robotId) {
+        return share(getVisitedCount(robotId));
+    }
+
+    /**
+     * Marks all fields of a straight move, or only its end if the robot was moved some other way
+     */
+    private void visitLine(int robotId, Position from, Position to) {
+        int dRow = to.getRow() - from.getRow();
+        int dCol = to.getCol() - from.getCol();
+        int steps = Math.max(Math.abs(dRow), Math.abs(dCol));
+        if (dRow != 0 && dCol != 0 && Math.abs(dRow) != Math.abs(dCol)) {
+            visit(robotId, to);
+            return;
+        }
+        for (int step = 1; step <= steps; step++) {
+            visit(robotId, from.getRow() + Integer.signum(dRow) * step, from.getCol() + Integer.signum(dCol) * step);
+        }
+    }
+
+    private void visit(int robotId, Position cell) {
+        visit(robotId, cell.getRow(), cell.getCol());
+    }
+
+    private void visit(int robotId, int row, int col) {
+        long index = (long) row * cols + col;
+        visited.set(index);
+        if (robotVisits != null) {
+            robotVisits.computeIfAbsent(robotId, id -> new Bits(visited.size, true)).set(index);
+        }
+    }
+
+    /**
+     * Remembers the current tick for every percentage reached since the last update
+     */
+    private void updateMilestones() {
+        int percent = (int) Math.min(100, Math.floor(getCoverage() * 100));
+        for (int p = reachedPercent + 1; p <= percent; p++) {
+            reachedAt[p] = manager.getTick();
+        }
+        reachedPercent = Math.max(reachedPercent, percent);
+    }
+
+    /**
+     * Returns the share of the free fields, fields which became obstacles after a visit still count
+     */
+    private double share(long count) {
+        long free = visited.size - obstacles;
+        return free <= 0 ? 1.0 : Math.min(1.0, (double) count / free);
+    }
+
+    /**
+     * Bitset over the fields of the grid split into pages allocated on first use,
+     * the pages are found in an array covering the whole grid or, for sparse bitsets, in a map
+     */
+    private static final class Bits {
+        private final long size;
+        private final long[][] pages; // null for a sparse bitset
+        private final Map<Integer, long[]> sparsePages; // null for a dense bitset
+        private long count;
+
+        private Bits(long size, boolean sparse) {
+            this.size = size;
+            this.pages = sparse ? null : new long[(int) ((size + (1L << PAGE_BITS) - 1) >>> PAGE_BITS)][];
+            this.sparsePages = sparse ? new HashMap<>() : null;
+        }
+
+        private boolean get(long index) {
+            int pageIndex = (int) (index >>> PAGE_BITS);
+            long[] page = pages != null ? pages[pageIndex] : sparsePages.get(pageIndex);
+            return page != null && (page[(int) (index & ((1 << PAGE_BITS) - 1)) >>> 6] & 1L << index) != 0;
+        }
+
+        private void set(long index) {
+            int pageIndex = (int) (index >>> PAGE_BITS);
+            long[] page = pages != null ? pages[pageIndex] : sparsePages.get(pageIndex);
+            if (page == null) {
+                page = new long[1 << (PAGE_BITS - 6)];
+                if (pages != null) {
+                    pages[pageIndex] = page;
+                } else {
+                    sparsePages.put(pageIndex, page);
+                }
+            }
+            int word = (int) (index & ((1 << PAGE_BITS) - 1)) >>> 6;
+            long bit = 1L << index;
+            if ((page[word] & bit) == 0) {
+                page[word] |= bit;
+                count++;
+            }
+        }
+    }
+}
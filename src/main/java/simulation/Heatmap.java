@@ -0,0 +1,143 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Counts per field how many ticks robots spent there and how many times robots standing there were blocked.
+ * The counts are kept in two flat int arrays indexed by row * cols + col and are updated after every tick
+ * from the snapshot published by the tick, one pass over the robots, so the cost does not depend on the size of the map.
+ * Counts may be read from other threads while the simulation runs, a reader may then see a tick half counted.
+ */
+public class Heatmap implements TickListener {
+    private static final Logger logger = LogManager.getLogger(Heatmap.class);
+
+    /**
+     * Kind of counts
+     */
+    public enum Layer {
+        VISITS, BLOCKED
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int[] visits;
+    private final int[] blocked;
+    private volatile int maxVisits;
+    private volatile int maxBlocked;
+    private volatile long ticks;
+
+    /**
+     * Creates an empty heatmap for a map of the given size
+     *
+     * @param rows The number of rows of the map
+     * @param cols The number of columns of the map
+     */
+    public Heatmap(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.visits = new int[rows * cols];
+        this.blocked = new int[rows * cols];
+    }
+
+    /**
+     * Adds the robots of the snapshot to the counts
+     *
+     * @param snapshot The snapshot of the world after the tick
+     */
+    @Override
+    public void tickCompleted(WorldSnapshot snapshot) {
+        int topVisits = maxVisits;
+        int topBlocked = maxBlocked;
+        for (int i = 0; i < snapshot.size(); i++) {
+            int cell = snapshot.getRow(i) * cols + snapshot.getCol(i);
+            topVisits = Math.max(topVisits, ++visits[cell]);
+            if (snapshot.isBlocked(i)) {
+                topBlocked = Math.max(topBlocked, ++blocked[cell]);
+            }
+        }
+        maxVisits = topVisits;
+        maxBlocked = topBlocked;
+        ticks++;
+    }
+
+    /**
+     * Returns the count of the field
+     *
+     * @param layer The kind of counts
+     * @param row   The row of the field
+     * @param col   The column of the field
+     * @return The number of ticks robots spent on the field, or the number of times they were blocked there
+     */
+    public int get(Layer layer, int row, int col) {
+        return (layer == Layer.VISITS ? visits : blocked)[row * cols + col];
+    }
+
+    /**
+     * Returns the highest count of all fields
+     *
+     * @param layer The kind of counts
+     * @return The highest count
+     */
+    public int getMax(Layer layer) {
+        return layer == Layer.VISITS ? maxVisits : maxBlocked;
+    }
+
+    /**
+     * Returns the number of ticks counted
+     *
+     * @return The number of ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of rows of the map
+     *
+     * @return The number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the map
+     *
+     * @return The number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Writes the counts of all fields robots have been on as CSV lines "row,col,visits,blocked"
+     *
+     * @param file The file to write
+     */
+    public void export(Path file) {
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.write("row,col,visits,blocked\n");
+            for (int cell = 0; cell < visits.length; cell++) {
+                if (visits[cell] != 0 || blocked[cell] != 0) {
+                    writer.write((cell / cols) + "," + (cell % cols) + "," + visits[cell] + "," + blocked[cell] + "\n");
+                }
+            }
+            logger.info("Heatmap of {} ticks exported to file: {}", ticks, file);
+        } catch (IOException e) {
+            logger.error("Failed to export heatmap to file: {}", file, e);
+            throw new RuntimeException(e);
+        }
+    }
+}
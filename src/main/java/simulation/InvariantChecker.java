@@ -0,0 +1,245 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+import main.java.common.Environment;
+import main.java.common.ObstacleGrid;
+import main.java.common.Position;
+import main.java.common.Robot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks the invariants of the world after every tick and every restore while the verification mode
+ * of the simulation manager is enabled:
+ * <ul>
+ *     <li>every robot is inside the map and not on an obstacle</li>
+ *     <li>the position index of the environment holds every robot at its cell, so no two robots share a cell</li>
+ *     <li>a tick is one step of the history: it saves at most one state, and exactly one if it changed the world</li>
+ *     <li>the history cursor points into the saved states and ticks are numbered in order</li>
+ * </ul>
+ * One pass over the robots of the published snapshot with one lookup in the position index per robot,
+ * so the check costs O(robots) and can stay enabled in long runs. Every violation is logged with its tick
+ * and kept, up to a limit, for the caller to inspect.
+ */
+public class InvariantChecker {
+    private static final int MAX_KEPT = 1000; // violations kept for inspection, further ones are only counted
+    private static final int MAX_LOGGED = 100;
+    private static final Logger logger = LogManager.getLogger(InvariantChecker.class);
+
+    /**
+     * Kind of broken invariant
+     */
+    public enum Kind {
+        OUT_OF_BOUNDS, ON_OBSTACLE, SHARED_CELL, NOT_INDEXED, HISTORY, TICK_ORDER
+    }
+
+    /**
+     * One broken invariant found by the checker
+     */
+    public static final class Violation {
+        private final long tick;
+        private final Kind kind;
+        private final int robotId;
+        private final String message;
+
+        private Violation(long tick, Kind kind, int robotId, String message) {
+            this.tick = tick;
+            this.kind = kind;
+            this.robotId = robotId;
+            this.message = message;
+        }
+
+        /**
+         * Returns the tick after which the violation was found
+         *
+         * @return The tick
+         */
+        public long getTick() {
+            return tick;
+        }
+
+        /**
+         * Returns the kind of the broken invariant
+         *
+         * @return The kind
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the identifier of the robot breaking the invariant
+         *
+         * @return The identifier of the robot, or 0 if the violation does not concern one robot
+         */
+        public int getRobotId() {
+            return robotId;
+        }
+
+        /**
+         * Returns the description of the violation
+         *
+         * @return The description
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "tick " + tick + " " + kind + ": " + message;
+        }
+    }
+
+    private final Environment environment;
+    private final List<Violation> violations = new ArrayList<>();
+    private long count;
+    private long firstTick = -1;
+    private long lastTick = -1;
+
+    /**
+     * Creates a checker of the environment
+     *
+     * @param environment The environment to check
+     */
+    InvariantChecker(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Checks the world and the history after a tick
+     *
+     * @param snapshot     The snapshot published by the tick
+     * @param versionDelta The number of changes of the environment made by the tick
+     * @param saved        The number of states saved in the history during the tick, -1 if the history is disabled
+     * @param cursor       The history cursor after the tick
+     * @param states       The number of states in the history after the tick
+     */
+    synchronized void checkTick(WorldSnapshot snapshot, long versionDelta, long saved, int cursor, int states) {
+        List<Violation> found = new ArrayList<>();
+        long tick = snapshot.getTick();
+        if (tick <= lastTick) {
+            found.add(new Violation(tick, Kind.TICK_ORDER, 0, "tick " + tick + " follows tick " + lastTick));
+        }
+        lastTick = tick;
+        if (saved > 1) {
+            found.add(new Violation(tick, Kind.HISTORY, 0, "the tick saved " + saved + " states, it could not be undone in one step"));
+        } else if (saved == 0 && versionDelta > 0) {
+            found.add(new Violation(tick, Kind.HISTORY, 0, "the tick changed the world without saving a state, it could not be undone"));
+        }
+        if (cursor < 0 || cursor > states) {
+            found.add(new Violation(tick, Kind.HISTORY, 0, "history cursor " + cursor + " outside of " + states + " states"));
+        }
+        checkRobots(snapshot, found);
+        report(snapshot, found);
+    }
+
+    /**
+     * Checks the world after a state was restored from the history
+     *
+     * @param snapshot The snapshot of the restored world
+     */
+    synchronized void checkRestore(WorldSnapshot snapshot) {
+        List<Violation> found = new ArrayList<>();
+        checkRobots(snapshot, found);
+        report(snapshot, found);
+    }
+
+    /**
+     * Returns the violations found so far, at most the first thousand
+     *
+     * @return The violations in the order they were found
+     */
+    public synchronized List<Violation> getViolations() {
+        return Collections.unmodifiableList(new ArrayList<>(violations));
+    }
+
+    /**
+     * Returns the number of violations found so far, including the ones not kept
+     *
+     * @return The number of violations
+     */
+    public synchronized long getViolationCount() {
+        return count;
+    }
+
+    /**
+     * Returns the tick of the first violation
+     *
+     * @return The tick, or -1 if no invariant was broken
+     */
+    public synchronized long getFirstViolationTick() {
+        return firstTick;
+    }
+
+    /**
+     * Forgets all violations found so far
+     */
+    public synchronized void clear() {
+        violations.clear();
+        count = 0;
+        firstTick = -1;
+    }
+
+    /**
+     * Checks the cell of every robot of the snapshot against the bounds, the obstacles and the position index
+     */
+    private void checkRobots(WorldSnapshot snapshot, List<Violation> found) {
+        ObstacleGrid obstacles = snapshot.getObstacles();
+        long tick = snapshot.getTick();
+        for (int i = 0; i < snapshot.size(); i++) {
+            int id = snapshot.getId(i);
+            int row = snapshot.getRow(i);
+            int col = snapshot.getCol(i);
+            if (row < 0 || col < 0 || row >= obstacles.getRows() || col >= obstacles.getCols()) {
+                found.add(new Violation(tick, Kind.OUT_OF_BOUNDS, id, "robot " + id + " at [" + row + ", " + col + "] is outside of the map"));
+                continue;
+            }
+            if (obstacles.get(row, col)) {
+                found.add(new Violation(tick, Kind.ON_OBSTACLE, id, "robot " + id + " at [" + row + ", " + col + "] stands on an obstacle"));
+            }
+            Robot indexed = environment.getRobotAt(new Position(row, col));
+            if (indexed == null) {
+                found.add(new Violation(tick, Kind.NOT_INDEXED, id, "robot " + id + " at [" + row + ", " + col + "] is missing in the position index"));
+            } else if (indexed.getId() != id) {
+                found.add(new Violation(tick, Kind.SHARED_CELL, id, "robot " + id + " at [" + row + ", " + col + "] shares the cell with robot " + indexed.getId()));
+            }
+        }
+    }
+
+    /**
+     * Records the violations. If the environment was changed by another thread during the check, the robots
+     * of the snapshot were looked up in a newer position index, so findings of the index are dropped and left
+     * to the next check, all other findings come from the snapshot or the history and are kept.
+     */
+    private void report(WorldSnapshot snapshot, List<Violation> found) {
+        if (found.isEmpty()) {
+            return;
+        }
+        if (environment.getVersion() != snapshot.getVersion()
+                && found.removeIf(violation -> violation.getKind() == Kind.NOT_INDEXED || violation.getKind() == Kind.SHARED_CELL)) {
+            logger.debug("Environment changed during the check of tick {}, findings of the position index ignored", snapshot.getTick());
+        }
+        for (Violation violation : found) {
+            if (firstTick < 0) {
+                firstTick = violation.getTick();
+            }
+            if (count < MAX_LOGGED) {
+                logger.error("Invariant broken after {}", violation);
+            } else if (count == MAX_LOGGED) {
+                logger.error("More than {} invariants broken, further violations are only counted", MAX_LOGGED);
+            }
+            if (violations.size() < MAX_KEPT) {
+                violations.add(violation);
+            }
+            count++;
+        }
+    }
+}
@@ -5,57 +5,133 @@
 
 package main.java.simulation;
 
+import main.java.behaviour.Behaviour;
 import main.java.common.Environment;
 import main.java.common.Observable;
+import main.java.common.Position;
 import main.java.common.Robot;
 import main.java.robot.AutonomousRobot;
+import main.java.navigation.FlowField;
+import main.java.navigation.PathPlanner;
+import main.java.navigation.ReservationTable;
+import main.java.robot.AbstractRobot;
 import main.java.robot.ControlledRobot;
 import main.java.simulation.states.EnvironmentState;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 /**
  * The SimulationManager class is responsible for managing the simulation state,
  * including starting, pausing, stopping, and reversing the simulation.
+ * Every environment has its own manager with its own history and clock, so one JVM can run many simulations.
+ * While the simulation is running, all robots of the environment are driven by the clock, one tick per second.
  * It follows the Observable pattern to notify observers of simulation state changes.
  */
 public class SimulationManager implements Observable {
-    private static SimulationManager instance;
-    private Environment environment;
+    public static final long TICK_MILLIS = 1000; // default duration of one simulation tick
+    private static final Map<Environment, SimulationManager> instances = new IdentityHashMap<>(); // one manager per environment
+    private final Environment environment;
     private boolean isRunning = false;
-    private final Stack<EnvironmentState> historyStates;
+    private final List<EnvironmentState> historyStates; // timeline of saved states shared by undo and redo
+    private int historyCursor = 0; // index of the state currently shown, states after it can be redone
     private static final Logger logger = LogManager.getLogger(SimulationManager.class);
     private final List<Observer> observers = new ArrayList<>();
-    private Robot activeRobot;
+    private final List<TickListener> tickListeners = new CopyOnWriteArrayList<>();
+    private int activeRobotId; // identifiers survive restores, so the selection does not have to be searched for
+    private Timer tickTimer;
+    private volatile long tickMillis = TICK_MILLIS;
+    private long tick = 0;
+    private PathPlanner pathPlanner;
+    private ReservationTable reservations;
+    private boolean historyEnabled = true;
+    private long savedBatch; // number of the last environment batch recorded in the history
+    private long savedStates; // number of states ever saved, compared before and after a tick
+    private final Map<Position, FlowField> flowFields = new HashMap<>(); // one shared field per goal cell
+    private final Map<Position, Integer> flowFieldUsers = new HashMap<>();
+    private final Map<Integer, FlowField> routes = new HashMap<>(); // robots following a flow field by their id
+    private volatile WorldSnapshot snapshot; // the last published state of the world, read without locking
+    private boolean deterministic = false;
+    private Random random = new Random();
+    private final BehaviourEngine behaviours;
+    private Heatmap heatmap;
+    private final CoverageTracker coverage;
+    private final InvariantChecker invariants;
+    private volatile boolean verification = false;
 
-    public SimulationManager(Environment environment) {
+    private SimulationManager(Environment environment) {
         this.environment = environment;
-        historyStates = new Stack<>();
+        this.behaviours = new BehaviourEngine(environment);
+        this.invariants = new InvariantChecker(environment);
+        historyStates = new ArrayList<>();
+        this.coverage = new CoverageTracker(environment, this);
+        environment.addChangeListener(coverage, Runnable::run); // updated on the thread committing the moves
+        coverage.visitCurrent();
     }
 
     /**
-     * Sets the environment for the simulation manager
+     * Returns the simulation manager of the environment, creating it on first use
      *
-     * @param newEnvironment The new environment to set
+     * @param environment The environment
+     * @return The simulation manager of the environment
      */
-    public void setEnvironment(Environment newEnvironment) {
-        this.environment = newEnvironment;
+    public static synchronized SimulationManager getInstance(Environment environment) {
+        return instances.computeIfAbsent(environment, SimulationManager::new);
     }
 
     /**
-     * Returns the environment for the simulation manager
+     * Stops the simulation of the environment and forgets its manager.
+     * Called when an environment is no longer used, the next call of {@link #getInstance(Environment)} creates a new manager.
      *
-     * @return The environment for the simulation manager
+     * @param environment The environment
      */
-    public static SimulationManager getInstance(Environment environment) {
-        if (instance == null) {
-            instance = new SimulationManager(environment);
+    public static void release(Environment environment) {
+        SimulationManager manager;
+        synchronized (SimulationManager.class) {
+            manager = instances.remove(environment);
+        }
+        if (manager != null) {
+            manager.pauseSimulation();
+            manager.dispose();
         }
-        return instance;
+    }
+
+    /**
+     * Detaches the path planner, the flow fields, the behaviours and the coverage tracker from the environment
+     */
+    private synchronized void dispose() {
+        if (pathPlanner != null) {
+            environment.removeObstacleListener(pathPlanner);
+            pathPlanner = null;
+        }
+        flowFields.values().forEach(FlowField::dispose);
+        flowFields.clear();
+        flowFieldUsers.clear();
+        routes.clear();
+        behaviours.dispose();
+        environment.removeChangeListener(coverage);
+        observers.clear();
+        tickListeners.clear();
+    }
+
+    /**
+     * Returns the environment simulated by the manager
+     *
+     * @return The environment
+     */
+    public Environment getEnvironment() {
+        return environment;
     }
 
     /**
@@ -63,15 +139,14 @@ public class SimulationManager implements Observable {
      */
     public void startSimulation() {
         if (!isRunning) {
-            environment.getRobots().forEach(robot -> {
-                if (robot instanceof AutonomousRobot) {
-                    ((AutonomousRobot) robot).isMoveable = true;
-                    ((AutonomousRobot) robot).initMovement();
-                }
-                if(robot instanceof ControlledRobot) {
-                    ((ControlledRobot) robot).canControlled = true;
+            setRobotsEnabled(true);
+            tickTimer = new Timer("simulation-tick", true);
+            tickTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    tick();
                 }
-            });
+            }, 0, tickMillis);
             isRunning = true;
             logger.info("Simulation resumed.");
         }
@@ -82,34 +157,103 @@ public class SimulationManager implements Observable {
      */
     public void pauseSimulation() {
         if (isRunning) {
-            environment.getRobots().forEach(robot -> {
-                if (robot instanceof AutonomousRobot) {
-                    ((AutonomousRobot) robot).isMoveable = false;
-                    ((AutonomousRobot) robot).stopMovement();
-                }
-                if(robot instanceof ControlledRobot) {
-                    ((ControlledRobot) robot).canControlled = false;
-                }
-            });
+            setRobotsEnabled(false);
+            if (tickTimer != null) {
+                tickTimer.cancel();
+                tickTimer = null;
+            }
             isRunning = false;
             logger.info("Simulation paused.");
         }
     }
 
     /**
-     * Stops the simulation
+     * Returns the duration of one tick of the simulation clock
+     *
+     * @return The duration of one tick in milliseconds
+     */
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Sets the duration of one tick of the simulation clock.
+     * Robots keep their velocity in cells per second, so shorter ticks move them by fractions of a cell
+     * and the simulation runs more smoothly instead of faster. A running simulation is rescheduled.
+     *
+     * @param millis The duration of one tick in milliseconds
      */
-    public void stopSimulation() {
+    public void setTickMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        tickMillis = millis;
+        if (isRunning) {
+            pauseSimulation();
+            startSimulation();
+        }
+    }
+
+    /**
+     * Lets the robots move on their own and accept commands, or stops them.
+     * Starting and pausing the simulation does this, headless runs driving {@link #tick()} directly call it themselves.
+     *
+     * @param enabled true to enable the robots, false to stop them
+     */
+    public void setRobotsEnabled(boolean enabled) {
+        environment.getRobots().forEach(robot -> {
+            if (robot instanceof AutonomousRobot) {
+                ((AutonomousRobot) robot).isMoveable = enabled;
+            }
+            if (robot instanceof ControlledRobot) {
+                ((ControlledRobot) robot).canControlled = enabled;
+            }
+        });
+    }
+
+    /**
+     * Switches the simulation to the deterministic mode.
+     * Robots then take their turns ordered by their identifiers instead of the order they were added or restored in,
+     * and the random generator returned by {@link #getRandom()} is seeded, so two runs of the same configuration
+     * with the same seed reach the same states, which can be compared by {@link WorldSnapshot#hash()}.
+     *
+     * @param seed The seed of the random generator
+     */
+    public synchronized void setDeterministic(long seed) {
+        deterministic = true;
+        random = new Random(seed);
+        logger.info("Deterministic mode enabled with seed {}.", seed);
+    }
+
+    /**
+     * Checks whether the simulation runs in the deterministic mode
+     *
+     * @return true if the simulation is deterministic, false otherwise
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Returns the random generator all randomized behaviour of the simulation has to use,
+     * it is seeded in the deterministic mode
+     *
+     * @return The random generator
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Stops the simulation, a tick already running is finished before the first state is restored
+     */
+    public synchronized void stopSimulation() {
         pauseSimulation();
         if(!historyStates.isEmpty()) {
-            environment.getRobots().clear();
-            EnvironmentState previousState = historyStates.firstElement();
+            EnvironmentState previousState = historyStates.get(0);
             historyStates.clear();
+            historyCursor = 0;
             previousState.restore(environment);
-            activeRobot = environment.getRobots().stream()
-                    .filter(robot -> robot instanceof ControlledRobot && ((ControlledRobot) robot).isActive())
-                    .findFirst()
-                    .orElse(null);
 
             notifyObservers();
             logger.info("Simulation stopped.");
@@ -119,43 +263,400 @@ public class SimulationManager implements Observable {
     }
 
     /**
-     * Saves the current state of the simulation
+     * Executes one simulation tick.
+     * Autonomous robots make their move and controlled robots with a planned path take their next step.
+     * The tick is one batch of the environment, so it is saved in the history once and observers are notified
+     * once per changed robot after all robots have moved. Tick listeners get the snapshot published after the tick.
      */
-    public void saveState() {
-        historyStates.push(new EnvironmentState(environment));
-        logger.info("Simulation state saved. Current stack size: {}", historyStates.size());
+    public synchronized void tick() {
+        tick++;
+        long savedBefore = savedStates;
+        getReservations().advance(tick);
+        List<Robot> robots = new ArrayList<>(environment.getRobots());
+        if (deterministic) {
+            robots.sort(Comparator.comparingInt(Robot::getId));
+        }
+        long changes;
+        WorldSnapshot published;
+        environment.beginBatch();
+        try {
+            long versionBefore = environment.getVersion(); // counted inside the batch, changes of other threads wait
+            moveRobots(robots);
+            changes = environment.getVersion() - versionBefore;
+            published = WorldSnapshot.capture(environment, tick); // still in the batch, so no edit lands in the snapshot
+            snapshot = published;
+        } finally {
+            environment.commit();
+        }
+        if (verification) {
+            invariants.checkTick(published, changes,
+                    historyEnabled ? savedStates - savedBefore : -1, historyCursor, historyStates.size());
+        }
+        for (TickListener listener : tickListeners) {
+            listener.tickCompleted(published);
+        }
     }
 
     /**
-     * Reverses the simulation to a previous state
+     * Lets every robot take its step of the current tick.
+     * Robots with a behaviour move after all other robots, decided group by group by their behaviours.
+     *
+     * @param robots The robots in the order they move
      */
-    public void reverseSimulation() {
-        pauseSimulation();
-        if (!historyStates.isEmpty()) {
-            environment.getRobots().clear();
+    private void moveRobots(List<Robot> robots) {
+        for (Robot robot : robots) {
+            FlowField route = routes.get(robot.getId());
+            Behaviour behaviour = behaviours.get(robot.getId());
+            if (route != null && robot instanceof AbstractRobot) {
+                if (!((AbstractRobot) robot).followFlowField(route) && route.angleAt(robot.getPosition()) < 0) {
+                    clearRoute(robot); // goal reached or no longer reachable
+                }
+            } else if (behaviour != null && robot instanceof AbstractRobot) {
+                behaviours.enqueue((AbstractRobot) robot, behaviour);
+            } else if (robot instanceof AutonomousRobot && ((AutonomousRobot) robot).isMoveable) {
+                robot.move();
+                robot.notifyObservers();
+            } else if (robot instanceof ControlledRobot && ((ControlledRobot) robot).hasPath()) {
+                ((ControlledRobot) robot).followPath();
+            }
+        }
+        behaviours.run(robots, random, tick);
+    }
 
-            EnvironmentState previousState = historyStates.pop();
-            previousState.restore(environment);
+    /**
+     * Returns an immutable snapshot of the current state of the world.
+     * The snapshot published after the last tick is returned without locking as long as the environment has not changed
+     * since. After a change made outside of a tick, for example by the user, a new snapshot is captured once,
+     * waiting for a running tick to finish so the snapshot never contains half of a tick.
+     *
+     * @return The snapshot of the world
+     */
+    public WorldSnapshot getSnapshot() {
+        WorldSnapshot current = snapshot;
+        if (current != null && current.getVersion() == environment.getVersion()) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.getVersion() != environment.getVersion()) {
+                environment.beginBatch(); // changes made from other threads directly in the environment wait for the capture
+                try {
+                    current = WorldSnapshot.capture(environment, tick);
+                } finally {
+                    environment.commit();
+                }
+                snapshot = current;
+            }
+            return current;
+        }
+    }
 
-            activeRobot = environment.getRobots().stream()
-                    .filter(robot -> robot instanceof ControlledRobot && ((ControlledRobot) robot).isActive())
-                    .findFirst()
-                    .orElse(null);
+    /**
+     * Registers a listener called with the snapshot of the world after every tick
+     *
+     * @param listener The listener to register
+     */
+    public void addTickListener(TickListener listener) {
+        tickListeners.add(listener);
+    }
 
-            notifyObservers();
+    /**
+     * Unregisters a tick listener
+     *
+     * @param listener The listener to unregister
+     */
+    public void removeTickListener(TickListener listener) {
+        tickListeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of ticks executed since the manager was created
+     *
+     * @return The current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the path planner for the environment of the simulation, creating it on first use
+     *
+     * @return The path planner
+     */
+    public synchronized PathPlanner getPathPlanner() {
+        if (pathPlanner == null) {
+            pathPlanner = new PathPlanner(environment);
+        }
+        return pathPlanner;
+    }
+
+    /**
+     * Returns the heatmap of the simulation, creating it on first use.
+     * Counting starts with the first tick after the heatmap is created, before that the simulation pays nothing for it.
+     *
+     * @return The heatmap
+     */
+    public synchronized Heatmap getHeatmap() {
+        if (heatmap == null) {
+            heatmap = new Heatmap(environment.getRows(), environment.getCols());
+            addTickListener(heatmap);
+        }
+        return heatmap;
+    }
+
+    /**
+     * Returns the tracker of the fields visited by robots, it is always on
+     *
+     * @return The coverage tracker
+     */
+    public CoverageTracker getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * Enables or disables the verification mode, in which the invariants of the world are checked
+     * after every tick and every undo or redo
+     *
+     * @param enabled true to check the invariants, false otherwise
+     */
+    public void setVerification(boolean enabled) {
+        this.verification = enabled;
+        logger.info("Verification mode {}.", enabled ? "enabled" : "disabled");
+    }
+
+    /**
+     * Checks whether the verification mode is enabled
+     *
+     * @return true if the invariants are checked, false otherwise
+     */
+    public boolean isVerification() {
+        return verification;
+    }
+
+    /**
+     * Returns the checker of the invariants with the violations found in the verification mode
+     *
+     * @return The invariant checker
+     */
+    public InvariantChecker getInvariants() {
+        return invariants;
+    }
+
+    /**
+     * Returns the reservation table in which robots announce the cells they are going to enter
+     *
+     * @return The reservation table
+     */
+    public synchronized ReservationTable getReservations() {
+        if (reservations == null) {
+            reservations = new ReservationTable(environment.getCols());
+        }
+        return reservations;
+    }
+
+    /**
+     * Enables or disables recording of the history.
+     * Headless runs which never reverse the simulation can turn it off to save memory.
+     *
+     * @param enabled true to record states for reversing, false otherwise
+     */
+    public void setHistoryEnabled(boolean enabled) {
+        this.historyEnabled = enabled;
+    }
+
+    /**
+     * Sends the robot to the goal cell using the flow field of that goal.
+     * All robots heading to the same goal share one field, which is computed only once.
+     *
+     * @param robot The robot to send
+     * @param goal  The goal cell
+     */
+    public synchronized void routeToGoal(Robot robot, Position goal) {
+        clearRoute(robot);
+        FlowField field = flowFields.computeIfAbsent(goal, g -> new FlowField(environment, g));
+        flowFieldUsers.merge(goal, 1, Integer::sum);
+        routes.put(robot.getId(), field);
+        logger.info("Robot #{} routed to position: col = {}, row = {}", robot.getId(), goal.getCol(), goal.getRow());
+    }
+
+    /**
+     * Sets the behaviour driving the robot instead of its own logic, a route set by {@link #routeToGoal} still takes precedence.
+     * Many robots can share one behaviour, they are then decided together in every tick.
+     * Behaviours are released together with the manager.
+     *
+     * @param robot     The robot
+     * @param behaviour The behaviour, or null to return the robot to its own logic
+     */
+    public synchronized void setBehaviour(Robot robot, Behaviour behaviour) {
+        if (behaviour != null && !(robot instanceof AbstractRobot)) {
+            throw new IllegalArgumentException("Behaviours can drive only robots derived from AbstractRobot");
+        }
+        behaviours.set(robot.getId(), behaviour);
+    }
+
+    /**
+     * Returns the behaviour driving the robot
+     *
+     * @param robot The robot
+     * @return The behaviour, or null if the robot follows its own logic
+     */
+    public synchronized Behaviour getBehaviour(Robot robot) {
+        return behaviours.get(robot.getId());
+    }
+
+    /**
+     * Checks whether the robot is following a flow field
+     *
+     * @param robot The robot to check
+     * @return true if the robot has a route, false otherwise
+     */
+    public synchronized boolean hasRoute(Robot robot) {
+        return routes.containsKey(robot.getId());
+    }
+
+    /**
+     * Stops the robot from following its flow field, the field is released when no other robot uses it
+     *
+     * @param robot The robot to stop
+     */
+    public synchronized void clearRoute(Robot robot) {
+        FlowField field = routes.remove(robot.getId());
+        if (field != null && flowFieldUsers.computeIfPresent(field.getGoal(), (goal, users) -> users > 1 ? users - 1 : null) == null) {
+            flowFields.remove(field.getGoal());
+            field.dispose();
+        }
+    }
+
+    /**
+     * Applies a change made by the user as one entry of the history.
+     * The state is saved and the change is made in one batch of the environment, opened under the lock of the manager
+     * as a tick opens its batch, so the change never interleaves with a tick and is undone in one step.
+     *
+     * @param change The change of the environment
+     * @param <T>    The type of the result of the change
+     * @return The result of the change
+     */
+    public synchronized <T> T edit(Supplier<T> change) {
+        environment.beginBatch();
+        try {
+            saveState();
+            return change.get();
+        } finally {
+            environment.commit();
+        }
+    }
+
+    /**
+     * Applies a change made by the user as one entry of the history, as {@link #edit(Supplier)} does
+     *
+     * @param change The change of the environment
+     */
+    public void edit(Runnable change) {
+        edit(() -> {
+            change.run();
+            return null;
+        });
+    }
+
+    /**
+     * Saves the current state of the simulation.
+     * States that were reversed and not yet redone are discarded, since the timeline diverges here.
+     * Within a batch of the environment only the first call saves the state, so the whole batch,
+     * for example a tick, is undone in one step.
+     * Synchronized with the tick, since the history is also saved from the event dispatch thread.
+     */
+    public synchronized void saveState() {
+        if (!historyEnabled) {
+            return;
+        }
+        long batch = environment.getBatch();
+        if (batch != 0) {
+            if (batch == savedBatch) {
+                return;
+            }
+            savedBatch = batch;
+        }
+        if (historyCursor < historyStates.size()) {
+            historyStates.subList(historyCursor, historyStates.size()).clear();
+        }
+        historyStates.add(new EnvironmentState(environment));
+        historyCursor = historyStates.size();
+        savedStates++;
+        logger.info("Simulation state saved. Current stack size: {}", historyStates.size());
+    }
+
+    /**
+     * Reverses the simulation to a previous state.
+     * The state being left is kept in the history, so it can be restored again by {@link #redoSimulation()}.
+     * Pausing does not stop a tick already running, the lock of the manager makes the reverse wait for it.
+     */
+    public synchronized void reverseSimulation() {
+        pauseSimulation();
+        if (historyCursor > 0) {
+            if (historyCursor == historyStates.size()) {
+                // remember the live state, so the first redo can return to it
+                historyStates.add(new EnvironmentState(environment));
+            }
+            historyCursor--;
+            restoreHistoryState(historyStates.get(historyCursor));
             logger.info("Simulation reversed to a previous state.");
         } else {
             logger.warn("Attempted to reverse simulation but no states were saved in the history stack.");
         }
     }
 
+    /**
+     * Re-executes the simulation forward to the state that was left by the last reverse
+     */
+    public synchronized void redoSimulation() {
+        pauseSimulation();
+        if (canRedo()) {
+            historyCursor++;
+            restoreHistoryState(historyStates.get(historyCursor));
+            logger.info("Simulation redone to a following state.");
+        } else {
+            logger.warn("Attempted to redo simulation but there are no reversed states to redo.");
+        }
+    }
+
+    /**
+     * Checks whether there is a reversed state which can be redone
+     *
+     * @return true if a redo is possible, false otherwise
+     */
+    public synchronized boolean canRedo() {
+        return historyCursor < historyStates.size() - 1;
+    }
+
+    /**
+     * Restores the environment to the given state from the history and notifies observers
+     *
+     * @param state The state to restore
+     */
+    private void restoreHistoryState(EnvironmentState state) {
+        state.restore(environment);
+        if (verification) {
+            invariants.checkRestore(getSnapshot());
+        }
+        notifyObservers();
+    }
+
     /**
      * Returns the active robot in the simulation
      *
      * @return The active robot in the simulation
      */
     public Robot getActiveRobot() {
-        return activeRobot;
+        return environment.getRobot(activeRobotId);
+    }
+
+    /**
+     * Sets the active robot in the simulation
+     *
+     * @param robot The robot to set as active, or null to clear the selection
+     */
+    public void setActiveRobot(Robot robot) {
+        activeRobotId = robot != null ? robot.getId() : 0;
     }
 
     @Override
@@ -0,0 +1,118 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+import main.java.common.Environment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs many independent simulations concurrently on a shared pool of threads.
+ * Every scenario is driven by the manager of its own environment, so scenarios share nothing but the threads.
+ * Scenarios are stepped tick after tick as fast as possible instead of by the clock of the manager,
+ * and the manager is released when the scenario ends.
+ */
+public class SimulationPool implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(SimulationPool.class);
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a pool with one thread per available processor
+     */
+    public SimulationPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a pool with the given number of threads
+     *
+     * @param threads The number of simulations running at the same time
+     */
+    public SimulationPool(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "simulation-pool-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /**
+     * Submits a scenario running the given number of ticks
+     *
+     * @param environment The environment of the scenario, it must not be simulated elsewhere
+     * @param ticks       The number of ticks to run
+     * @return The snapshot of the world after the last tick
+     */
+    public Future<WorldSnapshot> submit(Environment environment, int ticks) {
+        return submit(environment, ticks, manager -> { });
+    }
+
+    /**
+     * Submits a scenario running the given number of ticks after preparing its manager,
+     * for example by switching it to the deterministic mode or routing robots
+     *
+     * @param environment The environment of the scenario, it must not be simulated elsewhere
+     * @param ticks       The number of ticks to run
+     * @param setup       Prepares the manager of the scenario before the first tick
+     * @return The snapshot of the world after the last tick
+     */
+    public Future<WorldSnapshot> submit(Environment environment, int ticks, Consumer<SimulationManager> setup) {
+        return submit(() -> environment, ticks, setup, SimulationManager::getSnapshot);
+    }
+
+    /**
+     * Submits a scenario whose environment is created by the scenario itself and whose outcome is reduced
+     * to a result before the manager is released. Nothing of the world outlives the scenario except the result,
+     * so many scenarios can be submitted at once without keeping their maps in memory until they run.
+     *
+     * @param loader The creator of the environment of the scenario, called on the thread running it
+     * @param ticks  The number of ticks to run
+     * @param setup  Prepares the manager of the scenario before the first tick
+     * @param result Reduces the manager after the last tick to the result of the scenario
+     * @param <T>    The type of the result
+     * @return The result of the scenario
+     */
+    public <T> Future<T> submit(Supplier<Environment> loader, int ticks, Consumer<SimulationManager> setup,
+                                Function<SimulationManager, T> result) {
+        return executor.submit(() -> {
+            Environment environment = loader.get();
+            SimulationManager manager = SimulationManager.getInstance(environment);
+            try {
+                manager.setHistoryEnabled(false);
+                setup.accept(manager);
+                manager.setRobotsEnabled(true);
+                for (int t = 0; t < ticks && !Thread.currentThread().isInterrupted(); t++) {
+                    manager.tick();
+                }
+                return result.apply(manager);
+            } catch (RuntimeException e) {
+                logger.error("Scenario failed at tick {}: {}", manager.getTick(), e.getMessage());
+                throw e;
+            } finally {
+                SimulationManager.release(environment);
+            }
+        });
+    }
+
+    /**
+     * Lets the submitted scenarios finish and stops the threads
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
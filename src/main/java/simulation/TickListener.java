@@ -0,0 +1,18 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+/**
+ * Listener for finished ticks of a simulation.
+ * It is called on the thread running the tick, so it has to return quickly and hand longer work over to another thread.
+ */
+public interface TickListener {
+    /**
+     * Called after every tick with the snapshot of the world published by the tick
+     *
+     * @param snapshot The snapshot of the world after the tick
+     */
+    void tickCompleted(WorldSnapshot snapshot);
+}
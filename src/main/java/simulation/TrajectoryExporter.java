@@ -0,0 +1,233 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the trajectories of all robots to a file for offline analysis: the identifier, row, column, angle
+ * and blocked flag of every robot after every tick.
+ * The tick only puts its snapshot into a bounded queue, the file is written by a background thread which takes
+ * all waiting snapshots at once and writes them through a large buffer. When the writer falls behind and the queue
+ * is full, snapshots are dropped and counted instead of slowing the simulation down.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ *     <li>CSV - a header line and one line "tick,id,row,col,angle,blocked" per robot and tick</li>
+ *     <li>BINARY - columnar and big-endian: the int 0x544A5231 ("TJR1") followed by one block per tick with
+ *     the tick as a long, the number of robots n as an int, n int identifiers, n int rows, n int columns,
+ *     n short angles and (n + 7) / 8 bytes of blocked flags, the flag of robot i in bit i % 8 of byte i / 8</li>
+ * </ul>
+ */
+public class TrajectoryExporter implements TickListener, AutoCloseable {
+    private static final int MAGIC = 0x544A5231;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int DEFAULT_CAPACITY = 256; // ticks waiting for the writer
+    private static final long POLL_MILLIS = 100;
+    private static final Logger logger = LogManager.getLogger(TrajectoryExporter.class);
+
+    /**
+     * Format of the exported file
+     */
+    public enum Format {
+        CSV, BINARY
+    }
+
+    private final SimulationManager manager;
+    private final Path file;
+    private final Format format;
+    private final BlockingQueue<WorldSnapshot> queue;
+    private final OutputStream out;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+    private long exported; // used only by the writer thread
+    private ByteBuffer block = ByteBuffer.allocate(0); // used only by the writer thread
+
+    /**
+     * Starts exporting the ticks of the simulation, the format is CSV for files ending with .csv and binary otherwise
+     *
+     * @param manager The manager of the simulation to export
+     * @param file    The file to write
+     */
+    public TrajectoryExporter(SimulationManager manager, Path file) {
+        this(manager, file, file.toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? Format.CSV : Format.BINARY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts exporting the ticks of the simulation
+     *
+     * @param manager  The manager of the simulation to export
+     * @param file     The file to write
+     * @param format   The format of the file
+     * @param capacity The number of ticks which can wait for the writer before ticks are dropped
+     */
+    public TrajectoryExporter(SimulationManager manager, Path file, Format format, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.manager = manager;
+        this.file = file;
+        this.format = format;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        try {
+            this.out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+            if (format == Format.CSV) {
+                out.write("tick,id,row,col,angle,blocked\n".getBytes(StandardCharsets.US_ASCII));
+            } else {
+                out.write(ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).array());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to open trajectory file: {}", file, e);
+            throw new RuntimeException(e);
+        }
+        this.writer = new Thread(this::writeLoop, "trajectory-exporter");
+        writer.setDaemon(true);
+        writer.start();
+        manager.addTickListener(this);
+        logger.info("Exporting trajectories to file: {}", file);
+    }
+
+    /**
+     * Queues the snapshot for the writer, never waits
+     *
+     * @param snapshot The snapshot of the world after the tick
+     */
+    @Override
+    public void tickCompleted(WorldSnapshot snapshot) {
+        if (!closed && !queue.offer(snapshot)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of ticks dropped because the writer could not keep up
+     *
+     * @return The number of dropped ticks
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops exporting, writes the queued ticks and closes the file
+     */
+    @Override
+    public void close() {
+        manager.removeTickListener(this);
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            failure = failure != null ? failure : e;
+        }
+        if (dropped.get() > 0) {
+            logger.warn("{} ticks were not exported to {}, the writer could not keep up", dropped.get(), file);
+        }
+        if (failure != null) {
+            throw new RuntimeException("Failed to export trajectories to " + file, failure);
+        }
+        logger.info("Exported {} ticks to file: {}", exported, file);
+    }
+
+    /**
+     * Writes the queued snapshots in batches until the exporter is closed and the queue is empty
+     */
+    private void writeLoop() {
+        List<WorldSnapshot> batch = new ArrayList<>();
+        try {
+            while (true) {
+                WorldSnapshot first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                for (WorldSnapshot snapshot : batch) {
+                    if (format == Format.CSV) {
+                        writeCsv(snapshot);
+                    } else {
+                        writeBinary(snapshot);
+                    }
+                    exported++;
+                }
+                batch.clear();
+            }
+        } catch (IOException e) {
+            failure = e;
+            closed = true; // further ticks would be lost anyway
+            logger.error("Failed to write trajectory file: {}", file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeCsv(WorldSnapshot snapshot) throws IOException {
+        StringBuilder lines = new StringBuilder(snapshot.size() * 24);
+        for (int i = 0; i < snapshot.size(); i++) {
+            lines.append(snapshot.getTick()).append(',').append(snapshot.getId(i)).append(',')
+                    .append(snapshot.getRow(i)).append(',').append(snapshot.getCol(i)).append(',')
+                    .append(snapshot.getAngle(i)).append(',').append(snapshot.isBlocked(i) ? 1 : 0).append('\n');
+        }
+        out.write(lines.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void writeBinary(WorldSnapshot snapshot) throws IOException {
+        int count = snapshot.size();
+        int size = Long.BYTES + Integer.BYTES + count * (3 * Integer.BYTES + Short.BYTES) + (count + 7) / 8;
+        if (block.capacity() < size) {
+            block = ByteBuffer.allocate(Math.max(size, block.capacity() * 2));
+        }
+        block.clear();
+        block.putLong(snapshot.getTick()).putInt(count);
+        for (int i = 0; i < count; i++) {
+            block.putInt(snapshot.getId(i));
+        }
+        for (int i = 0; i < count; i++) {
+            block.putInt(snapshot.getRow(i));
+        }
+        for (int i = 0; i < count; i++) {
+            block.putInt(snapshot.getCol(i));
+        }
+        for (int i = 0; i < count; i++) {
+            block.putShort((short) snapshot.getAngle(i));
+        }
+        for (int i = 0; i < count; i += 8) {
+            int bits = 0;
+            for (int j = i; j < Math.min(count, i + 8); j++) {
+                if (snapshot.isBlocked(j)) {
+                    bits |= 1 << (j - i);
+                }
+            }
+            block.put((byte) bits);
+        }
+        out.write(block.array(), 0, block.position());
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.simulation;
+
+import main.java.common.Environment;
+import main.java.common.ObstacleGrid;
+import main.java.common.Robot;
+import main.java.robot.AbstractRobot;
+import main.java.robot.AutonomousRobot;
+import main.java.robot.ControlledRobot;
+
+import java.util.List;
+
+/**
+ * Immutable picture of the world at one moment: the obstacles and the identifier, position, angle, type
+ * and progress towards the next cell of every robot.
+ * Robots are stored in flat arrays instead of objects, so the snapshot is compact and can be read from any thread
+ * while the simulation goes on. The simulation manager publishes a new snapshot after every tick.
+ */
+public final class WorldSnapshot {
+    public static final byte CONTROLLED = 0;
+    public static final byte AUTONOMOUS = 1;
+    public static final byte OTHER = 2;
+
+    private final long tick;
+    private final long version;
+    private final ObstacleGrid obstacles;
+    private final int[] ids;
+    private final int[] rows;
+    private final int[] cols;
+    private final int[] angles;
+    private final byte[] kinds;
+    private final int[] progress;
+    private final boolean[] blocked;
+    private long hash; // computed on first use, 0 until then
+
+    private WorldSnapshot(long tick, long version, ObstacleGrid obstacles, int[] ids, int[] rows, int[] cols, int[] angles, byte[] kinds,
+                          int[] progress, boolean[] blocked) {
+        this.tick = tick;
+        this.version = version;
+        this.obstacles = obstacles;
+        this.ids = ids;
+        this.rows = rows;
+        this.cols = cols;
+        this.angles = angles;
+        this.kinds = kinds;
+        this.progress = progress;
+        this.blocked = blocked;
+    }
+
+    /**
+     * Captures the current state of the environment
+     *
+     * @param env  The environment to capture
+     * @param tick The tick of the simulation the snapshot belongs to
+     * @return The snapshot of the environment
+     */
+    public static WorldSnapshot capture(Environment env, long tick) {
+        long version = env.getVersion(); // read first, a change during the capture leaves the snapshot outdated
+        List<Robot> robots = env.robotsInRect(0, 0, env.getRows() - 1, env.getCols() - 1);
+        int count = robots.size();
+        int[] ids = new int[count];
+        int[] rows = new int[count];
+        int[] cols = new int[count];
+        int[] angles = new int[count];
+        byte[] kinds = new byte[count];
+        int[] progress = new int[count];
+        boolean[] blocked = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            Robot robot = robots.get(i);
+            ids[i] = robot.getId();
+            rows[i] = robot.getPosition().getRow();
+            cols[i] = robot.getPosition().getCol();
+            angles[i] = robot.angle();
+            kinds[i] = kindOf(robot);
+            if (robot instanceof AbstractRobot) {
+                progress[i] = ((AbstractRobot) robot).getProgress();
+                blocked[i] = ((AbstractRobot) robot).isBlocked();
+            }
+        }
+        return new WorldSnapshot(tick, version, env.snapshotObstacles(), ids, rows, cols, angles, kinds, progress, blocked);
+    }
+
+    /**
+     * Returns the type of the robot as stored in snapshots
+     *
+     * @param robot The robot
+     * @return CONTROLLED, AUTONOMOUS or OTHER
+     */
+    public static byte kindOf(Robot robot) {
+        return robot instanceof ControlledRobot ? CONTROLLED : robot instanceof AutonomousRobot ? AUTONOMOUS : OTHER;
+    }
+
+    /**
+     * Returns the tick of the simulation the snapshot belongs to
+     *
+     * @return The tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the version of the environment the snapshot was captured from
+     *
+     * @return The version of the environment
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a hash of the tick, the obstacles and the identifier, position, angle, type and progress of every robot.
+     * The order in which robots were captured does not matter, so two runs reaching the same state at the same tick
+     * always have the same hash. Whether a robot was blocked is not part of the state and not hashed.
+     *
+     * @return The hash of the snapshot
+     */
+    public long hash() {
+        long result = hash;
+        if (result == 0) {
+            long robots = 0;
+            for (int i = 0; i < ids.length; i++) {
+                long robot = mix(ids[i] * 0x9E3779B97F4A7C15L + rows[i] + ((long) progress[i] << 32));
+                robot = mix(robot ^ ((long) cols[i] << 32 | (angles[i] & 0xFFFFL) << 8 | kinds[i]));
+                robots += robot; // sum does not depend on the order of the robots
+            }
+            result = mix(mix(tick ^ obstacles.contentHash()) ^ robots);
+            hash = result;
+        }
+        return result;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the immutable snapshot of the obstacles
+     *
+     * @return The obstacles
+     */
+    public ObstacleGrid getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * Returns the number of robots in the snapshot
+     *
+     * @return The number of robots
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the identifier of the robot at the given index
+     *
+     * @param index The index of the robot in the snapshot
+     * @return The identifier of the robot
+     */
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Returns the row of the robot at the given index
+     *
+     * @param index The index of the robot in the snapshot
+     * @return The row of the robot
+     */
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Returns the column of the robot at the given index
+     *
+     * @param index The index of the robot in the snapshot
+     * @return The column of the robot
+     */
+    public int getCol(int index) {
+        return cols[index];
+    }
+
+    /**
+     * Returns the angle of the robot at the given index
+     *
+     * @param index The index of the robot in the snapshot
+     * @return The angle of the robot
+     */
+    public int getAngle(int index) {
+        return angles[index];
+    }
+
+    /**
+     * Returns how far the robot at the given index has travelled from its cell towards the next cell in its direction,
+     * which lets the view draw it between the two cells
+     *
+     * @param index The index of the robot in the snapshot
+     * @return The distance in sub-cells, {@link AbstractRobot#SUBCELLS} is one cell
+     */
+    public int getProgress(int index) {
+        return progress[index];
+    }
+
+    /**
+     * Checks whether the robot at the given index was blocked in the tick of the snapshot
+     *
+     * @param index The index of the robot in the snapshot
+     * @return true if the robot wanted to move but could not, false otherwise
+     */
+    public boolean isBlocked(int index) {
+        return blocked[index];
+    }
+
+    /**
+     * Returns the type of the robot at the given index
+     *
+     * @param index The index of the robot in the snapshot
+     * @return CONTROLLED, AUTONOMOUS or OTHER
+     */
+    public byte getKind(int index) {
+        return kinds[index];
+    }
+}
@@ -5,15 +5,21 @@
 package main.java.simulation.states;
 
 import main.java.common.Environment;
-import java.util.List;
+import main.java.common.ObstacleGrid;
+import main.java.common.Robot;
+
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents the state of an environment, including its robots and obstacles.
  * This class is used to save and restore the state of the environment.
+ * Obstacles are kept as a copy-on-write grid snapshot, so they are shared with
+ * the environment and with other states as long as they do not change.
  */
 public class EnvironmentState implements State {
-    private final List<State> states = new ArrayList<>();
+    private final ObstacleGrid obstacles;
+    private final RobotState[] robots;
 
     /**
      * Constructs an EnvironmentState from the given environment.
@@ -22,21 +28,27 @@ public class EnvironmentState implements State {
      * @param environment The environment to capture the state from.
      */
     public EnvironmentState(Environment environment) {
-        environment.getRobots().forEach(robot -> states.add(new RobotState(robot)));
-        environment.getObstacles().forEach(obstacle -> states.add(new ObstacleState(obstacle)));
+        this.obstacles = environment.snapshotObstacles();
+        List<Robot> envRobots = environment.getRobots();
+        this.robots = new RobotState[envRobots.size()];
+        for (int i = 0; i < robots.length; i++) {
+            robots[i] = new RobotState(envRobots.get(i));
+        }
     }
 
     /**
      * Restores the state of the environment to the saved state.
      * All existing robots and obstacles in the environment are removed and replaced
-     * with those from the saved state.
+     * with those from the saved state in a single bulk operation.
      *
      * @param environment The environment to restore the state to.
      */
     @Override
     public void restore(Environment environment) {
-        environment.clearRobots();
-        environment.clearObstacles();
-        states.forEach(state -> state.restore(environment));
+        List<Robot> restoredRobots = new ArrayList<>(robots.length);
+        for (RobotState robot : robots) {
+            restoredRobots.add(robot.toRobot(environment));
+        }
+        environment.restoreSnapshot(obstacles, restoredRobots);
     }
 }
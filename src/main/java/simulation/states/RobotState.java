@@ -7,6 +7,7 @@ package main.java.simulation.states;
 import main.java.common.Environment;
 import main.java.common.Position;
 import main.java.common.Robot;
+import main.java.robot.AbstractRobot;
 import main.java.robot.AutonomousRobot;
 import main.java.robot.ControlledRobot;
 
@@ -15,11 +16,13 @@ import main.java.robot.ControlledRobot;
  * This class is used to save and restore the state of a robot.
  */
 public class RobotState implements State {
-    private final Robot robot;
+    private final int id;
+    private final boolean autonomous;
     private final Position position;
     private final int speed;
     private final int angle;
-    private final boolean isActive;
+    private final int velocity; // -1 if the robot has no fixed-point motion
+    private final int progress;
 
     private final int detectionRange;
     private final int turnAngle;
@@ -27,16 +30,23 @@ public class RobotState implements State {
 
     /**
      * Constructs a RobotState from the given robot.
-     * Captures the position, speed, angle, and other properties of the robot.
+     * Captures the identifier, position, speed, angle, velocity, progress towards the next cell and other properties of the robot.
      *
      * @param robot The robot to capture the state from.
      */
     public RobotState(Robot robot) {
-        this.robot = robot;
+        this.id = robot.getId();
+        this.autonomous = robot instanceof AutonomousRobot;
         this.position = robot.getPosition();
         this.speed = robot.getSpeed();
         this.angle = robot.angle();
-        this.isActive = robot instanceof ControlledRobot && ((ControlledRobot) robot).isActive();
+        if (robot instanceof AbstractRobot) {
+            this.velocity = ((AbstractRobot) robot).getVelocity();
+            this.progress = ((AbstractRobot) robot).getProgress();
+        } else {
+            this.velocity = -1;
+            this.progress = 0;
+        }
 
         if (robot instanceof AutonomousRobot) {
             AutonomousRobot ar = (AutonomousRobot) robot;
@@ -50,24 +60,37 @@ public class RobotState implements State {
         }
     }
 
+    /**
+     * Creates a new robot with the stored properties without adding it to the environment.
+     * Used by the bulk restore, where the saved state is already known to be consistent.
+     *
+     * @param environment The environment the robot will operate in.
+     * @return The restored robot.
+     */
+    public Robot toRobot(Environment environment) {
+        Robot restoredRobot;
+        if (autonomous) {
+            restoredRobot = new AutonomousRobot(environment, position, speed, detectionRange, turnAngle, turnDirection, angle);
+        } else {
+            restoredRobot = new ControlledRobot(environment, position, speed, angle);
+        }
+        restoredRobot.setId(id);
+        if (velocity >= 0) {
+            ((AbstractRobot) restoredRobot).setVelocity(velocity);
+            ((AbstractRobot) restoredRobot).restoreProgress(progress);
+        }
+        return restoredRobot;
+    }
+
     /**
      * Restores the robot state in the specified environment.
-     * Creates a new robot in the environment at the stored position and restores its properties.
+     * Adds a new robot to the environment at the stored position and restores its properties.
      *
      * @param environment The environment to restore the robot in.
      */
     @Override
     public void restore(Environment environment) {
-        Robot restoredRobot = null;
-        if (robot instanceof AutonomousRobot) {
-            restoredRobot = AutonomousRobot.create(environment, position, speed, detectionRange, turnAngle, turnDirection, angle);
-        } else if (robot instanceof ControlledRobot) {
-            restoredRobot = ControlledRobot.create(environment, position, speed, angle);
-        }
-
-        if (restoredRobot instanceof ControlledRobot) {
-            ((ControlledRobot) restoredRobot).setActive(isActive);
-        }
+        environment.addRobot(toRobot(environment));
     }
 
 }
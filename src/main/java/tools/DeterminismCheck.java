@@ -0,0 +1,81 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.tools;
+
+import main.java.common.Environment;
+import main.java.common.Position;
+import main.java.common.Robot;
+import main.java.configuration.Configuration;
+import main.java.robot.ControlledRobot;
+import main.java.simulation.SimulationManager;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the same configuration several times in the deterministic mode and compares the state hash after every tick.
+ * Controlled robots are sent to goals drawn from the seeded random generator, autonomous robots move on their own.
+ * Exits with status 1 at the first tick where two runs differ.
+ * <p>
+ * Usage: DeterminismCheck [configuration] [ticks] [seed] [runs]
+ */
+public class DeterminismCheck {
+
+    /**
+     * Runs the check and prints the final hash or the first differing tick
+     *
+     * @param args Optional configuration file, number of ticks, seed and number of runs
+     */
+    public static void main(String... args) {
+        String file = args.length > 0 ? args[0] : "data/config.txt";
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        Configurator.setRootLevel(Level.WARN);
+
+        long[] expected = run(file, ticks, seed);
+        for (int r = 1; r < runs; r++) {
+            long[] hashes = run(file, ticks, seed);
+            for (int t = 0; t < ticks; t++) {
+                if (hashes[t] != expected[t]) {
+                    System.out.printf("Run %d differs from run 0 at tick %d: %016x != %016x%n", r, t + 1, hashes[t], expected[t]);
+                    System.exit(1);
+                }
+            }
+        }
+        System.out.printf("%d runs of %d ticks identical, final hash %016x%n", runs, ticks, expected[ticks - 1]);
+    }
+
+    /**
+     * Loads the configuration and runs the simulation, returning the state hash after every tick
+     */
+    private static long[] run(String file, int ticks, long seed) {
+        Environment env = Configuration.loadConfiguration(file);
+        SimulationManager manager = SimulationManager.getInstance(env);
+        manager.setHistoryEnabled(false);
+        manager.setDeterministic(seed);
+        manager.setRobotsEnabled(true);
+
+        long[] hashes = new long[ticks];
+        for (int t = 0; t < ticks; t++) {
+            Random random = manager.getRandom();
+            List<Robot> robots = new ArrayList<>(env.getRobots());
+            robots.sort(Comparator.comparingInt(Robot::getId));
+            for (Robot robot : robots) {
+                if (robot instanceof ControlledRobot && !manager.hasRoute(robot)) {
+                    manager.routeToGoal(robot, new Position(random.nextInt(env.getRows()), random.nextInt(env.getCols())));
+                }
+            }
+            manager.tick();
+            hashes[t] = manager.getSnapshot().hash();
+        }
+        SimulationManager.release(env);
+        return hashes;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.tools;
+
+import main.java.common.Environment;
+import main.java.common.Position;
+import main.java.common.Robot;
+import main.java.configuration.Configuration;
+import main.java.robot.ControlledRobot;
+import main.java.simulation.InvariantChecker;
+import main.java.simulation.SimulationManager;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs a configuration in the verification mode of the simulation manager and reports broken invariants.
+ * Controlled robots are sent to goals drawn from the seeded random generator, autonomous robots move on their own,
+ * and every few ticks the last tick is undone and redone, so restores from the history are checked as well.
+ * Exits with status 1 if any invariant was broken, so it can run in CI or as a long soak test.
+ * <p>
+ * Usage: InvariantCheck [configuration] [ticks] [seed] [undo interval]
+ */
+public class InvariantCheck {
+
+    /**
+     * Runs the check and prints the violations or a summary
+     *
+     * @param args Optional configuration file, number of ticks, seed and number of ticks between undos, 0 for no undos
+     */
+    public static void main(String... args) {
+        String file = args.length > 0 ? args[0] : "data/config.txt";
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        int undoInterval = args.length > 3 ? Integer.parseInt(args[3]) : 25;
+        Configurator.setRootLevel(Level.WARN);
+
+        Environment env = Configuration.loadConfiguration(file);
+        SimulationManager manager = SimulationManager.getInstance(env);
+        manager.setDeterministic(seed);
+        manager.setRobotsEnabled(true);
+        manager.setVerification(true);
+
+        long start = System.nanoTime();
+        for (int t = 1; t <= ticks; t++) {
+            Random random = manager.getRandom();
+            List<Robot> robots = new ArrayList<>(env.getRobots());
+            robots.sort(Comparator.comparingInt(Robot::getId));
+            for (Robot robot : robots) {
+                if (robot instanceof ControlledRobot && !manager.hasRoute(robot)) {
+                    manager.routeToGoal(robot, new Position(random.nextInt(env.getRows()), random.nextInt(env.getCols())));
+                }
+            }
+            manager.tick();
+            if (undoInterval > 0 && t % undoInterval == 0) {
+                manager.reverseSimulation();
+                manager.redoSimulation();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        InvariantChecker invariants = manager.getInvariants();
+        SimulationManager.release(env);
+        for (InvariantChecker.Violation violation : invariants.getViolations()) {
+            System.out.println(violation);
+        }
+        if (invariants.getViolationCount() > 0) {
+            System.out.printf("%d invariants broken in %d ticks, first after tick %d%n",
+                    invariants.getViolationCount(), ticks, invariants.getFirstViolationTick());
+            System.exit(1);
+        }
+        System.out.printf("%d ticks of %d robots checked in %.1f s, no invariant broken%n", ticks, env.getRobots().size(), seconds);
+    }
+}
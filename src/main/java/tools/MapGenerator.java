@@ -0,0 +1,260 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.tools;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates large maps in the format read by {@link main.java.configuration.Configuration} for load testing.
+ * Whether a field is an obstacle is a pure function of the seed and the field, so obstacles are never held in memory:
+ * they are counted in a first pass and written in a second one, straight to the file.
+ * Only the fields taken by robots are remembered, one bit per field.
+ * <p>
+ * Usage: MapGenerator file [rows] [cols] [pattern] [density] [robots] [autonomousShare] [seed]
+ * <ul>
+ *     <li>pattern - random, maze or warehouse</li>
+ *     <li>density - share of the fields covered by obstacles, not used by the maze</li>
+ *     <li>autonomousShare - share of autonomous robots, the rest are controlled robots</li>
+ * </ul>
+ */
+public class MapGenerator {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int AISLE_PERIOD = 3; // two columns of shelves and one aisle
+    private static final int CROSS_AISLE_PERIOD = 12; // rows between two cross aisles
+    private static final int PLACEMENT_ATTEMPTS = 20; // per robot before giving up on a full map
+    private static final int[] TURN_ANGLES = {45, 90, 135, 180};
+    private static final Logger logger = LogManager.getLogger(MapGenerator.class);
+
+    /**
+     * Layout of the obstacles
+     */
+    public enum Pattern {
+        RANDOM, MAZE, WAREHOUSE
+    }
+
+    private final int rows;
+    private final int cols;
+    private final Pattern pattern;
+    private final double density;
+    private final int robots;
+    private final double autonomousShare;
+    private final long seed;
+
+    /**
+     * Creates the generator
+     *
+     * @param rows            The number of rows of the map
+     * @param cols            The number of columns of the map
+     * @param pattern         The layout of the obstacles
+     * @param density         The share of the fields covered by obstacles, not used by the maze
+     * @param robots          The number of robots to place
+     * @param autonomousShare The share of autonomous robots
+     * @param seed            The seed of the random generator, the same seed gives the same map
+     */
+    public MapGenerator(int rows, int cols, Pattern pattern, double density, int robots, double autonomousShare, long seed) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported map size: " + rows + "x" + cols);
+        }
+        if (density < 0 || density > 1 || autonomousShare < 0 || autonomousShare > 1 || robots < 0) {
+            throw new IllegalArgumentException("Density and share of autonomous robots must be between 0 and 1, robots must not be negative");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.pattern = pattern;
+        this.density = density;
+        this.robots = robots;
+        this.autonomousShare = autonomousShare;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the map given on the command line
+     *
+     * @param args The file and optional rows, columns, pattern, density, robots, share of autonomous robots and seed
+     */
+    public static void main(String... args) {
+        if (args.length == 0) {
+            System.err.println("Usage: MapGenerator file [rows] [cols] [random|maze|warehouse] [density] [robots] [autonomousShare] [seed]");
+            System.exit(1);
+        }
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        Pattern pattern = args.length > 3 ? Pattern.valueOf(args[3].toUpperCase(Locale.ROOT)) : Pattern.RANDOM;
+        double density = args.length > 4 ? Double.parseDouble(args[4]) : 0.2;
+        int robots = args.length > 5 ? Integer.parseInt(args[5]) : 1000;
+        double autonomousShare = args.length > 6 ? Double.parseDouble(args[6]) : 0.5;
+        long seed = args.length > 7 ? Long.parseLong(args[7]) : 42L;
+
+        long start = System.nanoTime();
+        new MapGenerator(rows, cols, pattern, density, robots, autonomousShare, seed).write(Paths.get(args[0]));
+        System.out.printf("Generated %s in %.1f s%n", args[0], (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes the map to a file
+     *
+     * @param file The file to write
+     */
+    public void write(Path file) {
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            write(writer);
+            logger.info("Map {}x{} generated to file: {}", rows, cols, file);
+        } catch (IOException e) {
+            logger.error("Failed to generate map to file: {}", file, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the map to a writer
+     *
+     * @param writer The writer receiving the map
+     * @throws IOException if the map cannot be written
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write("Room\nRows=" + rows + "\nCols=" + cols + "\n");
+
+        long obstacles = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (isObstacle(row, col)) {
+                    obstacles++;
+                }
+            }
+        }
+        writer.write("Obstacles=" + obstacles + "\n");
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (isObstacle(row, col)) {
+                    writer.write("Obstacle Position\nRow=" + row + "\nCol=" + col + "\n");
+                }
+            }
+        }
+
+        Random random = new Random(seed);
+        BitSet taken = placeRobots(random);
+        writer.write("Robots=" + taken.cardinality() + "\n");
+        int id = 1;
+        for (int index = taken.nextSetBit(0); index >= 0; index = taken.nextSetBit(index + 1), id++) {
+            int row = index / cols;
+            int col = index % cols;
+            if (random.nextDouble() < autonomousShare) {
+                writer.write("AutonomousRobot\nid=" + id + "\npositionRow=" + row + "\npositionCol=" + col
+                        + "\ndetectionRange=1\nturnAngle=" + TURN_ANGLES[random.nextInt(TURN_ANGLES.length)]
+                        + "\nturnDirection=" + random.nextBoolean() + "\nspeed=1\n");
+            } else {
+                writer.write("ControlledRobot\nid=" + id + "\npositionRow=" + row + "\npositionCol=" + col + "\nspeed=1\n");
+            }
+        }
+    }
+
+    /**
+     * Picks free fields for the robots, fewer robots are placed if the map is too full
+     *
+     * @param random The random generator
+     * @return The fields taken by robots, indexed by row * cols + col
+     */
+    private BitSet placeRobots(Random random) {
+        BitSet taken = new BitSet(rows * cols);
+        int placed = 0;
+        for (long attempts = 0; placed < robots && attempts < (long) robots * PLACEMENT_ATTEMPTS; attempts++) {
+            int row = random.nextInt(rows);
+            int col = random.nextInt(cols);
+            int index = row * cols + col;
+            if (!taken.get(index) && !isObstacle(row, col)) {
+                taken.set(index);
+                placed++;
+            }
+        }
+        if (placed < robots) {
+            logger.warn("Only {} of {} robots could be placed", placed, robots);
+        }
+        return taken;
+    }
+
+    /**
+     * Decides whether the field is an obstacle, the same seed always gives the same answer
+     *
+     * @param row The row of the field
+     * @param col The column of the field
+     * @return true if the field is an obstacle
+     */
+    public boolean isObstacle(int row, int col) {
+        switch (pattern) {
+            case MAZE:
+                return isMazeWall(row, col);
+            case WAREHOUSE:
+                return isShelf(row, col);
+            default:
+                return chance(row, col, 0) < density;
+        }
+    }
+
+    /**
+     * Maze carved by the binary tree algorithm: cells lie on odd rows and columns, every cell opens the wall
+     * towards its upper or its right neighbour, so all cells are connected.
+     */
+    private boolean isMazeWall(int row, int col) {
+        boolean oddRow = (row & 1) == 1;
+        boolean oddCol = (col & 1) == 1;
+        if (oddRow && oddCol) {
+            return false; // cell
+        }
+        if (!oddRow && !oddCol) {
+            return true; // pillar
+        }
+        if (oddRow) {
+            // wall between the cells on the left and on the right, open if the left one goes right
+            return col == 0 || col + 1 >= cols || !opensRight(row, col - 1);
+        }
+        // wall between the cells above and below, open if the lower one goes up
+        return row == 0 || row + 1 >= rows || opensRight(row + 1, col);
+    }
+
+    private boolean opensRight(int row, int col) {
+        if (row == 1) {
+            return true; // no cells above the first row
+        }
+        if (col + 2 >= cols) {
+            return false; // no cells right of the last column
+        }
+        return chance(row, col, 1) < 0.5;
+    }
+
+    /**
+     * Warehouse with pairs of shelf columns separated by aisles and crossed by an aisle every few rows.
+     * Shelf fields are filled so that the whole map reaches the requested density where possible.
+     */
+    private boolean isShelf(int row, int col) {
+        if (col % AISLE_PERIOD == 0 || row % CROSS_AISLE_PERIOD == 0 || row == rows - 1 || col == cols - 1) {
+            return false;
+        }
+        double shelfShare = (AISLE_PERIOD - 1.0) / AISLE_PERIOD * (CROSS_AISLE_PERIOD - 1.0) / CROSS_AISLE_PERIOD;
+        return chance(row, col, 2) < density / shelfShare;
+    }
+
+    /**
+     * Returns a uniformly distributed number between 0 and 1 derived from the seed and the field
+     */
+    private double chance(int row, int col, int salt) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) row * cols + col) * 3 + salt + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
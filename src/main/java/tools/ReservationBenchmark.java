@@ -0,0 +1,110 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.tools;
+
+import main.java.common.Position;
+import main.java.common.Robot;
+import main.java.environment.Room;
+import main.java.robot.AbstractRobot;
+import main.java.robot.AutonomousRobot;
+import main.java.robot.ControlledRobot;
+import main.java.simulation.SimulationManager;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures how many robot moves are completed per tick depending on the density of robots.
+ * Routed robots shuttle between the left and the right side of a room with scattered obstacles,
+ * so two streams of robots meet head-on, which is where reservations prevent gridlock.
+ * Autonomous robots start facing each other, those in the left half heading east and those in the right half west.
+ * <p>
+ * Usage: ReservationBenchmark [rows] [cols] [ticks] [seed]
+ */
+public class ReservationBenchmark {
+    private static final double OBSTACLE_DENSITY = 0.05;
+    private static final double[] ROBOT_DENSITIES = {0.01, 0.02, 0.05, 0.10, 0.20, 0.30};
+
+    /**
+     * Runs the benchmark and prints one line per robot density
+     *
+     * @param args Optional number of rows, columns, ticks and the random seed
+     */
+    public static void main(String... args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+        Configurator.setRootLevel(Level.WARN);
+
+        System.out.println("robots\tdensity\tcount\tmoves/tick\tblocked/tick\tms/tick");
+        for (boolean autonomous : new boolean[]{false, true}) {
+            for (double density : ROBOT_DENSITIES) {
+                run(rows, cols, ticks, seed, density, autonomous);
+            }
+        }
+    }
+
+    private static void run(int rows, int cols, int ticks, long seed, double density, boolean autonomous) {
+        Random random = new Random(seed);
+        Room room = Room.create(rows, cols);
+        SimulationManager manager = SimulationManager.getInstance(room);
+        manager.setHistoryEnabled(false);
+
+        Position west = new Position(rows / 2, 0);
+        Position east = new Position(rows / 2, cols - 1);
+        for (int i = 0; i < rows * cols * OBSTACLE_DENSITY; i++) {
+            Position p = new Position(random.nextInt(rows), random.nextInt(cols));
+            if (!p.equals(west) && !p.equals(east)) {
+                room.createObstacleAt(p.getRow(), p.getCol());
+            }
+        }
+        int robotCount = (int) (rows * cols * density);
+        for (int placed = 0, attempts = 0; placed < robotCount && attempts < robotCount * 20; attempts++) {
+            Position p = new Position(random.nextInt(rows), random.nextInt(cols));
+            if (room.obstacleAt(p) || room.robotAt(p)) {
+                continue;
+            }
+            Robot robot = autonomous
+                    ? AutonomousRobot.create(room, p, 1, 1, 90, random.nextBoolean(), p.getCol() < cols / 2 ? 90 : 270)
+                    : ControlledRobot.create(room, p, 1, 0);
+            if (robot != null) {
+                placed++;
+            }
+        }
+        manager.setRobotsEnabled(true);
+
+        Map<Integer, Position> lastPositions = new HashMap<>();
+        long moves = 0;
+        long blocked = 0;
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            for (Robot robot : room.getRobots()) {
+                if (!autonomous && !manager.hasRoute(robot)) {
+                    // shuttle to the side the robot is further away from
+                    Position goal = robot.getPosition().getCol() < cols / 2 ? east : west;
+                    manager.routeToGoal(robot, goal);
+                }
+                lastPositions.put(robot.getId(), robot.getPosition());
+            }
+            manager.tick();
+            for (Robot robot : room.getRobots()) {
+                if (!robot.getPosition().equals(lastPositions.get(robot.getId()))) {
+                    moves++;
+                }
+                if (robot instanceof AbstractRobot && ((AbstractRobot) robot).isBlocked()) {
+                    blocked++;
+                }
+            }
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%s\t%.2f\t%d\t%.2f\t%.2f\t%.3f%n", autonomous ? "autonomous" : "routed", density, room.getRobots().size(),
+                (double) moves / ticks, (double) blocked / ticks, millis / ticks);
+        SimulationManager.release(room);
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xposte00 - Aleksander Postelga
+ */
+package main.java.tools;
+
+import main.java.common.ChangeEvent;
+import main.java.common.ChangeListener;
+import main.java.common.Environment;
+import main.java.common.Robot;
+import main.java.configuration.Configuration;
+import main.java.robot.AutonomousRobot;
+import main.java.simulation.CoverageTracker;
+import main.java.simulation.SimulationPool;
+import main.java.simulation.TickListener;
+import main.java.simulation.WorldSnapshot;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a configuration with every combination of a grid of parameters of the autonomous robots and prints
+ * one summary table. Every combination is a separate environment loaded from the configuration, and all of them
+ * run in parallel in a {@link SimulationPool}, in the deterministic mode with the same seed so they can be compared.
+ * <p>
+ * Usage: SweepRunner configuration [ticks] [seed] [parameter=value,value,...]...
+ * <ul>
+ *     <li>parameter - detectionRange, turnAngle, turnDirection or speed, a parameter left out keeps the values
+ *     of the configuration</li>
+ * </ul>
+ * For every combination the table shows:
+ * <ul>
+ *     <li>moves/tick - cells crossed by all robots per tick</li>
+ *     <li>blocked/tick - robots per tick which stopped in front of an obstacle or another robot instead of colliding</li>
+ *     <li>coverage - share of the free fields robots have visited, including fields crossed during a move</li>
+ *     <li>50% at - tick in which half of the free fields were visited, - if it was not reached</li>
+ * </ul>
+ * Example: SweepRunner data/config.txt 500 42 turnAngle=45,90,135 turnDirection=true,false speed=1,2
+ */
+public class SweepRunner {
+    private static final String[] PARAMETERS = {"detectionRange", "turnAngle", "turnDirection", "speed"};
+
+    /**
+     * Runs the sweep given on the command line and prints the table
+     *
+     * @param args The configuration file, optional number of ticks and seed, and the values of the parameters
+     */
+    public static void main(String... args) {
+        if (args.length == 0) {
+            System.err.println("Usage: SweepRunner configuration [ticks] [seed] [parameter=value,value,...]...");
+            System.exit(1);
+        }
+        int positional = 1;
+        while (positional < args.length && positional < 3 && !args[positional].contains("=")) {
+            positional++;
+        }
+        String file = args[0];
+        int ticks = positional > 1 ? Integer.parseInt(args[1]) : 500;
+        long seed = positional > 2 ? Long.parseLong(args[2]) : 42L;
+        Map<String, String[]> grid = new LinkedHashMap<>();
+        for (String parameter : PARAMETERS) {
+            grid.put(parameter, new String[]{null}); // null keeps the value of the configuration
+        }
+        for (int i = positional; i < args.length; i++) {
+            String[] pair = args[i].split("=", 2);
+            if (pair.length != 2 || !grid.containsKey(pair[0])) {
+                throw new IllegalArgumentException("Unknown parameter: " + args[i]);
+            }
+            grid.put(pair[0], pair[1].split(","));
+        }
+        Configurator.setRootLevel(Level.WARN);
+
+        long start = System.nanoTime();
+        List<Map<String, String>> settings = combinations(grid);
+        List<Result> results = run(file, ticks, seed, settings);
+        System.out.printf("%-15s %-10s %-14s %-6s %12s %13s %9s %7s%n",
+                "detectionRange", "turnAngle", "turnDirection", "speed", "moves/tick", "blocked/tick", "coverage", "50% at");
+        for (int i = 0; i < settings.size(); i++) {
+            Map<String, String> setting = settings.get(i);
+            Result result = results.get(i);
+            System.out.printf(Locale.ROOT, "%-15s %-10s %-14s %-6s %12s %13s %9s %7s%n",
+                    valueOf(setting, "detectionRange"), valueOf(setting, "turnAngle"), valueOf(setting, "turnDirection"),
+                    valueOf(setting, "speed"), result.format(result.moves), result.format(result.blocked),
+                    result.failed ? "failed" : String.format(Locale.ROOT, "%.1f %%", 100.0 * result.coverage),
+                    result.failed ? "failed" : result.halfAt >= 0 ? String.valueOf(result.halfAt) : "-");
+        }
+        System.out.printf(Locale.ROOT, "%d runs of %d ticks in %.1f s%n", settings.size(), ticks, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Runs all settings in parallel and waits for their results.
+     * Every run loads its own environment when it starts and is reduced to its numbers when it ends,
+     * so the memory used does not grow with the number of settings.
+     */
+    private static List<Result> run(String file, int ticks, long seed, List<Map<String, String>> settings) {
+        List<Future<Result>> futures = new ArrayList<>();
+        List<Result> results = new ArrayList<>();
+        try (SimulationPool pool = new SimulationPool()) {
+            for (Map<String, String> setting : settings) {
+                Counter counter = new Counter();
+                futures.add(pool.submit(() -> {
+                    Environment env = Configuration.loadConfiguration(file);
+                    applySetting(env, setting);
+                    return env;
+                }, ticks, manager -> {
+                    manager.setDeterministic(seed);
+                    manager.getEnvironment().addChangeListener(counter, Runnable::run);
+                    manager.addTickListener(counter);
+                }, manager -> counter.finish(ticks, manager.getCoverage())));
+            }
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(Result.FAILED);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep interrupted", e);
+        }
+        return results;
+    }
+
+    /**
+     * Replaces the autonomous robots of the environment by robots with the parameters of the setting
+     */
+    private static void applySetting(Environment env, Map<String, String> setting) {
+        List<Robot> robots = new ArrayList<>();
+        for (Robot robot : env.getRobots()) {
+            if (robot instanceof AutonomousRobot) {
+                AutonomousRobot original = (AutonomousRobot) robot;
+                AutonomousRobot replaced = new AutonomousRobot(env, original.getPosition(),
+                        intOf(setting, "speed", original.getSpeed()),
+                        intOf(setting, "detectionRange", original.getDetectionRange()),
+                        intOf(setting, "turnAngle", original.getTurnAngle()),
+                        setting.get("turnDirection") != null ? Boolean.parseBoolean(setting.get("turnDirection")) : original.getTurnDirection(),
+                        original.angle());
+                replaced.setId(original.getId());
+                robot = replaced;
+            }
+            robots.add(robot);
+        }
+        env.restoreSnapshot(env.snapshotObstacles(), robots);
+    }
+
+    /**
+     * Returns every combination of the values of the grid, the last parameter changing fastest
+     */
+    private static List<Map<String, String>> combinations(Map<String, String[]> grid) {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combinations.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String[]> parameter : grid.entrySet()) {
+            List<Map<String, String>> extended = new ArrayList<>();
+            for (Map<String, String> combination : combinations) {
+                for (String value : parameter.getValue()) {
+                    Map<String, String> next = new LinkedHashMap<>(combination);
+                    next.put(parameter.getKey(), value);
+                    extended.add(next);
+                }
+            }
+            combinations = extended;
+        }
+        return combinations;
+    }
+
+    private static int intOf(Map<String, String> setting, String parameter, int original) {
+        String value = setting.get(parameter);
+        return value != null ? Integer.parseInt(value) : original;
+    }
+
+    private static String valueOf(Map<String, String> setting, String parameter) {
+        String value = setting.get(parameter);
+        return value != null ? value : "-";
+    }
+
+    /**
+     * Counts of one running scenario, moves are counted from the changes of the environment
+     * and blocked robots from the snapshots of the ticks, both on the simulation thread
+     */
+    private static final class Counter implements ChangeListener, TickListener {
+        private long cells; // cells crossed by all robots
+        private long blocked; // robots blocked summed over all ticks
+
+        @Override
+        public void changed(List<ChangeEvent> events) {
+            for (ChangeEvent event : events) {
+                if (event instanceof ChangeEvent.RobotMoved) {
+                    ChangeEvent.RobotMoved moved = (ChangeEvent.RobotMoved) event;
+                    cells += Math.max(Math.abs(moved.getTo().getRow() - moved.getFrom().getRow()),
+                            Math.abs(moved.getTo().getCol() - moved.getFrom().getCol()));
+                }
+            }
+        }
+
+        @Override
+        public void tickCompleted(WorldSnapshot snapshot) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (snapshot.isBlocked(i)) {
+                    blocked++;
+                }
+            }
+        }
+
+        /**
+         * Reduces the finished scenario to its numbers
+         */
+        private Result finish(int ticks, CoverageTracker coverage) {
+            return new Result((double) cells / ticks, (double) blocked / ticks, coverage.getCoverage(), coverage.getTickReaching(50), false);
+        }
+    }
+
+    /**
+     * Numbers of one finished run, the only thing kept of it until the table is printed
+     */
+    private static final class Result {
+        private static final Result FAILED = new Result(0, 0, 0, -1, true);
+
+        private final double moves;
+        private final double blocked;
+        private final double coverage;
+        private final long halfAt;
+        private final boolean failed;
+
+        private Result(double moves, double blocked, double coverage, long halfAt, boolean failed) {
+            this.moves = moves;
+            this.blocked = blocked;
+            this.coverage = coverage;
+            this.halfAt = halfAt;
+            this.failed = failed;
+        }
+
+        private String format(double value) {
+            return failed ? "failed" : String.format(Locale.ROOT, "%.2f", value);
+        }
+    }
+}
@@ -9,7 +9,6 @@ import main.java.common.Robot;
 import main.java.EnvPresenter;
 import main.java.configuration.Configuration;
 import main.java.robot.ControlledRobot;
-import main.java.simulation.SimulationManager;
 import main.java.design.DesignedButton;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,19 +16,15 @@ import org.apache.logging.log4j.Logger;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.util.List;
 
 /**
  * The ControlView class manages the control panel of the application,
  * providing buttons to manipulate the simulation and interact with robots.
  */
 public class ControlView extends JPanel implements ComponentView {
-    private List<Robot> robots; // List of robots
-    private int currentRobotIndex = 0; // Index of the current robot
     private Robot model;
     private final EnvPresenter presenter;
     private static final Logger logger = LogManager.getLogger(ControlView.class);
-    private final SimulationManager simulationManager;
 
     /**
      * Constructs a ControlView for controlling the robots and the simulation.
@@ -40,18 +35,9 @@ public class ControlView extends JPanel implements ComponentView {
     public ControlView(EnvPresenter presenter, Robot model){
         this.presenter = presenter;
         this.model = model;
-        this.simulationManager = SimulationManager.getInstance(presenter.getEnvironment());
         initializeUI();
     }
 
-    /**
-     * Sets the list of robots
-     *
-     */
-    public void setRobots(List<Robot> robots) {
-        this.robots = robots;
-    }
-
     /**
      * Sets the active robot
      *
@@ -59,13 +45,7 @@ public class ControlView extends JPanel implements ComponentView {
     public void setActiveRobot(Robot robot) {
         if (robot instanceof ControlledRobot) {
             this.model = robot;
-            int index = robots.indexOf(robot);
-            if (index != -1) {
-                currentRobotIndex = index;
-                logger.info("Switched to Robot #{}", currentRobotIndex + 1);
-            } else {
-                logger.error("Attempted to switch to a robot not in the list");
-            }
+            logger.info("Switched to Robot #{}", robot.getId());
             repaint();
         } else {
             logger.error("Attempted to switch to a non-ControlledRobot");
@@ -133,6 +113,12 @@ public class ControlView extends JPanel implements ComponentView {
         reverseButton.addActionListener(this::handleReverse);
         add(reverseButton);
 
+        Icon redoButtonIcon = resizeIcon(new ImageIcon("lib/icons/redo.png"));
+        DesignedButton redoButton = new DesignedButton(redoButtonIcon);
+        redoButton.setPreferredSize(new Dimension(60, 45));
+        redoButton.addActionListener(this::handleRedo);
+        add(redoButton);
+
     }
 
     /**
@@ -148,37 +134,37 @@ public class ControlView extends JPanel implements ComponentView {
     }
 
     /**
-     * Performs the move action
+     * Performs the move action as one entry of the history, so a running tick cannot interleave with it
      *
      * @param e The action event
      */
     private void performMove(ActionEvent e) {
         if (model != null) {
-            model.move();
+            presenter.getSimulationManager().edit(model::move);
             repaint();
         }
     }
 
     /**
-     * Performs the turn action
+     * Performs the turn action as one entry of the history
      *
      * @param e The action event
      */
     private void performTurn(ActionEvent e) {
         if (model != null) {
-            model.turn();
+            presenter.getSimulationManager().edit(model::turn);
             repaint();
         }
     }
 
     /**
-     * Performs the counter turn action
+     * Performs the counter turn action as one entry of the history
      *
      * @param e The action event
      */
     private void performCounterTurn(ActionEvent e) {
         if (model != null && model instanceof ControlledRobot robot) {
-            robot.turnCounterClockwise();
+            presenter.getSimulationManager().edit(robot::turnCounterClockwise);
             repaint();
         }
     }
@@ -217,7 +203,7 @@ public class ControlView extends JPanel implements ComponentView {
      * @param e The action event
      */
     private void handleStart(ActionEvent e) {
-        simulationManager.startSimulation();
+        presenter.getSimulationManager().startSimulation();
     }
 
     /**
@@ -226,7 +212,7 @@ public class ControlView extends JPanel implements ComponentView {
      * @param e The action event
      */
     private void handlePause(ActionEvent e) {
-        simulationManager.pauseSimulation();
+        presenter.getSimulationManager().pauseSimulation();
     }
 
     /**
@@ -235,7 +221,16 @@ public class ControlView extends JPanel implements ComponentView {
      * @param e The action event
      */
     private void handleReverse(ActionEvent e) {
-        simulationManager.reverseSimulation();
+        presenter.getSimulationManager().reverseSimulation();
+    }
+
+    /**
+     * Handles the redo action
+     *
+     * @param e The action event
+     */
+    private void handleRedo(ActionEvent e) {
+        presenter.getSimulationManager().redoSimulation();
     }
 
     /**
@@ -244,7 +239,7 @@ public class ControlView extends JPanel implements ComponentView {
      * @param e The action event
      */
     private void handleStop(ActionEvent e) {
-        simulationManager.stopSimulation();
+        presenter.getSimulationManager().stopSimulation();
     }
 
     /**
@@ -264,6 +259,6 @@ public class ControlView extends JPanel implements ComponentView {
      */
     @Override
     public Robot getModel() {
-        return robots.get(currentRobotIndex);
+        return model;
     }
 }
\ No newline at end of file
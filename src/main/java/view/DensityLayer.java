@@ -0,0 +1,133 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xpetri23 - Aleksei Petrishko
+ */
+package main.java.view;
+
+import main.java.common.Environment;
+import main.java.common.ObstacleGrid;
+import main.java.common.ObstacleListener;
+import main.java.design.DesignedField;
+
+import java.util.Arrays;
+
+/**
+ * Overview of the obstacles used when the map is zoomed out so far that single fields cannot be drawn.
+ * Every sample of the overview covers a square block of fields and its color shows how many of them are obstacles.
+ * The samples are updated one by one when obstacles change, so rendering the map only copies colors into pixels.
+ */
+public class DensityLayer implements ObstacleListener {
+    private static final int MAX_SAMPLES = 1024; // along one side of the overview
+
+    private final Environment env;
+    private final int block; // number of fields along one side of a sample
+    private final int sampleRows;
+    private final int sampleCols;
+    private final int[] counts;
+    private final int[] colors;
+    private boolean dirty = true;
+
+    /**
+     * Creates the layer for the environment and registers it for obstacle changes
+     *
+     * @param env The environment to show
+     */
+    public DensityLayer(Environment env) {
+        this.env = env;
+        int block = 1;
+        while ((Math.max(env.getRows(), env.getCols()) + block - 1) / block > MAX_SAMPLES) {
+            block *= 2;
+        }
+        this.block = block;
+        this.sampleRows = (env.getRows() + block - 1) / block;
+        this.sampleCols = (env.getCols() + block - 1) / block;
+        this.counts = new int[sampleRows * sampleCols];
+        this.colors = new int[sampleRows * sampleCols];
+        env.addObstacleListener(this);
+    }
+
+    /**
+     * Renders the overview into the pixels of a view, pixels outside the map get the background color
+     *
+     * @param pixels     The RGB pixels of the view, row by row
+     * @param width      The width of the view
+     * @param height     The height of the view
+     * @param offsetX    The x coordinate of the map shown at the left edge of the view
+     * @param offsetY    The y coordinate of the map shown at the top edge of the view
+     * @param cellSize   The size of one field in pixels
+     * @param background The RGB color outside the map
+     */
+    public synchronized void render(int[] pixels, int width, int height, double offsetX, double offsetY, double cellSize, int background) {
+        if (dirty) {
+            rebuild();
+        }
+        int[] sampleCol = new int[width]; // sample column of every pixel column, -1 outside the map
+        for (int x = 0; x < width; x++) {
+            int col = (int) Math.floor((offsetX + x) / cellSize);
+            sampleCol[x] = col >= 0 && col < env.getCols() ? col / block : -1;
+        }
+        for (int y = 0; y < height; y++) {
+            int row = (int) Math.floor((offsetY + y) / cellSize);
+            int rowStart = y * width;
+            if (row < 0 || row >= env.getRows()) {
+                Arrays.fill(pixels, rowStart, rowStart + width, background);
+                continue;
+            }
+            int sampleStart = (row / block) * sampleCols;
+            for (int x = 0; x < width; x++) {
+                pixels[rowStart + x] = sampleCol[x] < 0 ? background : colors[sampleStart + sampleCol[x]];
+            }
+        }
+    }
+
+    /**
+     * Detaches the layer from the environment
+     */
+    public void dispose() {
+        env.removeObstacleListener(this);
+    }
+
+    @Override
+    public synchronized void obstacleAdded(int row, int col) {
+        update(row, col, 1);
+    }
+
+    @Override
+    public synchronized void obstacleRemoved(int row, int col) {
+        update(row, col, -1);
+    }
+
+    @Override
+    public synchronized void obstaclesReplaced() {
+        dirty = true; // rebuilt on the next paint, several replacements in a row cost one rebuild
+    }
+
+    private void update(int row, int col, int change) {
+        if (dirty) {
+            return;
+        }
+        int index = (row / block) * sampleCols + col / block;
+        counts[index] += change;
+        colors[index] = DesignedField.densityColor(counts[index], block * block);
+    }
+
+    /**
+     * Counts the obstacles of every block from a snapshot of the obstacles and recolors all samples
+     */
+    private void rebuild() {
+        ObstacleGrid obstacles = env.snapshotObstacles();
+        Arrays.fill(counts, 0);
+        for (int row = 0; row < env.getRows(); row++) {
+            int rowStart = (row / block) * sampleCols;
+            for (int col = 0; col < env.getCols(); col++) {
+                if (obstacles.get(row, col)) {
+                    counts[rowStart + col / block]++;
+                }
+            }
+        }
+        for (int index = 0; index < counts.length; index++) {
+            colors[index] = DesignedField.densityColor(counts[index], block * block);
+        }
+        dirty = false;
+    }
+}
@@ -7,26 +7,23 @@ package main.java.view;
 import main.java.EnvPresenter;
 import main.java.common.Position;
 import main.java.common.Environment;
+import main.java.common.Robot;
 import main.java.simulation.SimulationManager;
 import main.java.design.DesignedUtils;
 import main.java.robot.AutonomousRobot;
 import main.java.robot.ControlledRobot;
-import main.java.design.DesignedField;
 
-import java.awt.*;
 import javax.swing.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
 
 /**
- * FieldView is a graphical component that represents a single field in the environment grid.
- * It manages the display of obstacles and robots, and handles user interactions like clicking on the field.
+ * FieldView handles user interactions with a single field of the environment grid, like clicking on the field.
+ * The field itself is painted by the map view, which creates a FieldView for the clicked field.
  */
-public class FieldView extends DesignedField {
+public class FieldView {
     private final Environment model;
     private final Position position;
     private final EnvPresenter presenter;
-    private ComponentView obj;
+    private final MapView parent;
 
     private final SimulationManager simulationManager;
 
@@ -36,28 +33,22 @@ public class FieldView extends DesignedField {
      * @param env       The environment model to which this field belongs.
      * @param pos       The position of the field within the environment.
      * @param presenter The presenter managing the environment.
+     * @param parent    The map view showing the field, used as the parent of dialogs.
      */
-    public FieldView(Environment env, Position pos, EnvPresenter presenter) {
-        super(); // calls the constructor of the DesignedField
+    public FieldView(Environment env, Position pos, EnvPresenter presenter, MapView parent) {
         this.model = env;
         this.position = pos;
         this.presenter = presenter;
-        this.simulationManager = SimulationManager.getInstance(env);
-        addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                handleMouseClick();
-            }
-        });
+        this.parent = parent;
+        this.simulationManager = presenter.getSimulationManager();
     }
 
     /**
      * Handles the mouse click event.
      * Depending on the state of the field, it removes an obstacle or prompts to add a new element.
      */
-    private void handleMouseClick() {
+    public void handleMouseClick() {
         if (model.obstacleAt(position)) {
-            simulationManager.saveState();
             removeObstacle();
         } else if (!model.robotAt(position)) {
             handleAddElement();
@@ -69,25 +60,42 @@ public class FieldView extends DesignedField {
      * Removes the obstacle at the current position
      */
     private void removeObstacle() {
-        model.removeObstacleAt(position.getRow(), position.getCol());
+        simulationManager.edit(() -> model.removeObstacleAt(position.getRow(), position.getCol()));
     }
 
     /**
      * Handles the addition of an element (obstacle or robot) to the field
      */
     private void handleAddElement() {
-        String[] options = {"Add obstacle", "Add robot"};
+        Robot activeRobot = simulationManager.getActiveRobot();
+        String[] options = activeRobot instanceof ControlledRobot
+                ? new String[]{"Add obstacle", "Add robot", "Send all robots here", "Send robot here"}
+                : new String[]{"Add obstacle", "Add robot", "Send all robots here"};
         int choice = DesignedUtils.showCustomConfirmDialog(
-                this,
+                parent,
                 "Choose an action:",
                 "Add element",
                 options);
 
         if (choice == 0) {
-            simulationManager.saveState();
-            model.createObstacleAt(position.getRow(), position.getCol());
+            simulationManager.edit(() -> model.createObstacleAt(position.getRow(), position.getCol()));
         } else if (choice == 1) {
             handleRobotTypeSelection();
+        } else if (choice == 2) {
+            model.getRobots().forEach(robot -> simulationManager.routeToGoal(robot, position));
+        } else if (choice == 3) {
+            handleSendRobot((ControlledRobot) activeRobot);
+        }
+    }
+
+    /**
+     * Sends the robot to this field, the path is followed while the simulation is running
+     *
+     * @param robot The robot to send
+     */
+    private void handleSendRobot(ControlledRobot robot) {
+        if (!robot.goTo(position)) {
+            DesignedUtils.showCustomConfirmDialog(parent, "The robot cannot reach this field.", "Send robot", new String[]{"OK"});
         }
     }
 
@@ -97,7 +105,7 @@ public class FieldView extends DesignedField {
     private void handleRobotTypeSelection() {
         String[] options = {"Controlled robot", "Autonomous robot"};
         int choice = DesignedUtils.showCustomConfirmDialog(
-                this,
+                parent,
                 "Select type of robot to add:",
                 "Robot Type",
                 options);
@@ -115,8 +123,7 @@ public class FieldView extends DesignedField {
     private void handleRobotCreation() {
         int speed = askForRobotSpeed();
         if (speed > 0) { // speed will be -1 if the user cancels the dialog
-            simulationManager.saveState();
-            ControlledRobot newRobot = ControlledRobot.create(model, position, speed, 0);
+            ControlledRobot newRobot = simulationManager.edit(() -> ControlledRobot.create(model, position, speed, 0));
             if (newRobot != null) {
                 addNewControlledRobot(newRobot);
                 if(simulationManager.isRunning()) newRobot.canControlled = true;
@@ -163,13 +170,11 @@ public class FieldView extends DesignedField {
         boolean turnDirection = (turnDirChoice == 1);  // True if "Right", false if "Left"
 
         if (!model.robotAt(position)) {
-            simulationManager.saveState();
-            AutonomousRobot newRobot = AutonomousRobot.create(model, position, speed, detectionRange, turnAngle, turnDirection, 0);
+            AutonomousRobot newRobot = simulationManager.edit(() -> AutonomousRobot.create(model, position, speed, detectionRange, turnAngle, turnDirection, 0));
             if (newRobot != null) {
                 presenter.addRobotView(newRobot);
                 if(simulationManager.isRunning()) {
                     newRobot.isMoveable = true;
-                    newRobot.initMovement();
                 }
             }
         }
@@ -204,15 +209,8 @@ public class FieldView extends DesignedField {
      * @param newRobot The new controlled robot
      */
     private void addNewControlledRobot(ControlledRobot newRobot) {
-        FieldView fieldView = presenter.fieldAt(position);
-        if (fieldView != null) {
-            RobotView robotView = new RobotView(presenter, newRobot);
-            model.addRobot(newRobot);
-            presenter.addRobotView(newRobot);
-            presenter.setActiveRobotByPosition(position);
-            fieldView.addComponent(robotView);
-            fieldView.repaint();
-        }
+        presenter.addRobotView(newRobot);
+        presenter.setActiveRobotByPosition(position);
     }
 
     /**
@@ -222,54 +220,6 @@ public class FieldView extends DesignedField {
         if (model.robotAt(position)) {
             presenter.setActiveRobotByPosition(position);
         }
-        privUpdate();
-        repaint();
-    }
-
-    /**
-     * Updates the view of the field
-     */
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-
-        // Draw the obstacle
-        if (model.obstacleAt(position)) {
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.setColor(Color.DARK_GRAY);
-            g2d.fillRect(0, 0, getWidth(), getHeight());
-        }
-
-        // If there is a robot, calls his paintComponent method
-        if (obj != null) {
-            obj.paintComponent(g);
-        }
-    }
-
-    /**
-     * Updates the view of the field
-     */
-    private void privUpdate() {
-        if (this.model.obstacleAt(this.position)) {
-            this.setBackground(Color.lightGray);
-            this.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-        }
-    }
-
-    /**
-     * Adds a component to the field
-     *
-     * @param var1 The component to add
-     */
-    public void addComponent(ComponentView var1) {
-        this.obj = var1;
-    }
-
-    /**
-     * Removes the component from the field
-     */
-    public void removeComponent() {
-        this.obj = null;
+        parent.refresh();
     }
 }
\ No newline at end of file
@@ -0,0 +1,469 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xpetri23 - Aleksei Petrishko
+ */
+package main.java.view;
+
+import main.java.common.Environment;
+import main.java.common.ObstacleGrid;
+import main.java.common.Position;
+import main.java.design.DesignedField;
+import main.java.design.DesignedRobot;
+import main.java.robot.AbstractRobot;
+import main.java.simulation.Heatmap;
+import main.java.simulation.SimulationManager;
+import main.java.simulation.WorldSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Renders frames of the map on its own thread.
+ * A frame is drawn into a back buffer from an immutable snapshot of the world and then swapped with the front buffer,
+ * which is the only thing the event dispatch thread copies to the screen. Requests coming faster than frames can be
+ * drawn are merged, only the latest viewport is rendered. A heatmap of the simulation can be laid over the fields.
+ */
+public class MapRenderer implements Runnable {
+    private static final double DETAIL_CELL_SIZE = 4.0; // smaller fields are shown as a density image
+    private static final double BORDER_CELL_SIZE = 8.0; // smaller fields are drawn without borders
+    private static final Logger logger = LogManager.getLogger(MapRenderer.class);
+
+    private final MapView view;
+    private final Environment env;
+    private final SimulationManager simulationManager;
+    private final DensityLayer densityLayer;
+    private final Object frameLock = new Object();
+    private BufferedImage front; // guarded by frameLock
+    private BufferedImage back; // used only by the render thread
+    private Viewport requested; // guarded by this
+    private boolean running = true; // guarded by this
+    private volatile Heatmap.Layer heatmapLayer; // null when the heatmap is hidden
+
+    /**
+     * Creates the renderer and starts its thread
+     *
+     * @param view              The view showing the rendered frames
+     * @param env               The environment to render
+     * @param simulationManager The simulation manager publishing snapshots of the environment
+     */
+    public MapRenderer(MapView view, Environment env, SimulationManager simulationManager) {
+        this.view = view;
+        this.env = env;
+        this.simulationManager = simulationManager;
+        this.densityLayer = new DensityLayer(env);
+        Thread thread = new Thread(this, "map-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Asks for a new frame of the given viewport, can be called from any thread
+     *
+     * @param viewport The viewport to render
+     */
+    public synchronized void request(Viewport viewport) {
+        if (viewport != null && viewport.width > 0 && viewport.height > 0) {
+            requested = viewport;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Shows the given counts of the heatmap over the map, or hides the heatmap
+     *
+     * @param layer The counts to show, or null to hide the heatmap
+     */
+    public void setHeatmapLayer(Heatmap.Layer layer) {
+        heatmapLayer = layer;
+    }
+
+    /**
+     * Returns the counts of the heatmap shown over the map
+     *
+     * @return The counts shown, or null if the heatmap is hidden
+     */
+    public Heatmap.Layer getHeatmapLayer() {
+        return heatmapLayer;
+    }
+
+    /**
+     * Copies the last finished frame to the screen
+     *
+     * @param g The graphics context of the view
+     */
+    public void paintFrame(Graphics g) {
+        synchronized (frameLock) {
+            if (front != null) {
+                g.drawImage(front, 0, 0, null);
+            }
+        }
+    }
+
+    /**
+     * Stops the render thread and detaches the renderer from the environment
+     */
+    public synchronized void dispose() {
+        running = false;
+        notifyAll();
+        densityLayer.dispose();
+    }
+
+    /**
+     * Renders the requested frames until the renderer is disposed
+     */
+    @Override
+    public void run() {
+        while (true) {
+            Viewport viewport;
+            synchronized (this) {
+                while (running && requested == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                viewport = requested;
+                requested = null;
+            }
+            try {
+                render(viewport);
+                view.repaint();
+            } catch (RuntimeException e) {
+                logger.error("Failed to render the map: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Draws one frame into the back buffer and swaps it with the front buffer
+     *
+     * @param viewport The viewport to render
+     */
+    private void render(Viewport viewport) {
+        if (back == null || back.getWidth() != viewport.width || back.getHeight() != viewport.height) {
+            back = new BufferedImage(viewport.width, viewport.height, BufferedImage.TYPE_INT_RGB);
+        }
+        WorldSnapshot snapshot = simulationManager.getSnapshot();
+        Heatmap.Layer layer = heatmapLayer;
+        Heatmap heatmap = layer != null ? simulationManager.getHeatmap() : null;
+        Graphics2D g = back.createGraphics();
+        if (viewport.cellSize < DETAIL_CELL_SIZE) {
+            renderOverview(viewport, snapshot, heatmap, layer);
+        } else {
+            g.setColor(viewport.background);
+            g.fillRect(0, 0, viewport.width, viewport.height);
+            renderFields(g, viewport, snapshot, heatmap, layer);
+        }
+        renderSelection(g, viewport);
+        g.dispose();
+        synchronized (frameLock) {
+            BufferedImage finished = back;
+            back = front;
+            front = finished;
+        }
+    }
+
+    /**
+     * Draws single fields with their obstacles and robots
+     */
+    private void renderFields(Graphics2D g, Viewport viewport, WorldSnapshot snapshot, Heatmap heatmap, Heatmap.Layer layer) {
+        int firstRow = Math.max(0, viewport.rowAt(0));
+        int lastRow = Math.min(env.getRows() - 1, viewport.rowAt(viewport.height));
+        int firstCol = Math.max(0, viewport.colAt(0));
+        int lastCol = Math.min(env.getCols() - 1, viewport.colAt(viewport.width));
+        if (firstRow > lastRow || firstCol > lastCol) {
+            return;
+        }
+        int left = viewport.toX(firstCol);
+        int top = viewport.toY(firstRow);
+        int right = viewport.toX(lastCol + 1);
+        int bottom = viewport.toY(lastRow + 1);
+        g.setColor(DesignedField.BASE_COLOR);
+        g.fillRect(left, top, right - left, bottom - top);
+
+        ObstacleGrid obstacles = snapshot.getObstacles();
+        Position hovered = viewport.hovered;
+        if (hovered != null && !obstacles.get(hovered.getRow(), hovered.getCol())) {
+            renderField(g, viewport, hovered, DesignedField.HOVER_COLOR);
+        }
+        for (Position obstacle : obstacles.positions(firstRow, firstCol, lastRow, lastCol)) {
+            renderField(g, viewport, obstacle, DesignedField.OBSTACLE_COLOR);
+        }
+        if (viewport.cellSize >= BORDER_CELL_SIZE) {
+            g.setColor(DesignedField.BORDER_COLOR);
+            for (int row = firstRow; row <= lastRow + 1; row++) {
+                g.drawLine(left, viewport.toY(row), right, viewport.toY(row));
+            }
+            for (int col = firstCol; col <= lastCol + 1; col++) {
+                g.drawLine(viewport.toX(col), top, viewport.toX(col), bottom);
+            }
+        }
+        if (heatmap != null) {
+            renderHeat(g, viewport, heatmap, layer, firstRow, firstCol, lastRow, lastCol);
+        }
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            int row = snapshot.getRow(i);
+            int col = snapshot.getCol(i);
+            if (row < firstRow || row > lastRow || col < firstCol || col > lastCol) {
+                continue;
+            }
+            int x = viewport.toX(col);
+            int size = viewport.toX(col + 1) - x;
+            int y = viewport.toY(row);
+            int progress = snapshot.getProgress(i);
+            if (progress > 0) {
+                // draw the robot between its cell and the next one it is travelling to
+                int shift = (int) ((long) progress * size / AbstractRobot.SUBCELLS);
+                x += AbstractRobot.colStep(snapshot.getAngle(i)) * shift;
+                y += AbstractRobot.rowStep(snapshot.getAngle(i)) * shift;
+            }
+            DesignedRobot.paintRobot(g, x, y, size, snapshot.getKind(i), snapshot.getAngle(i), snapshot.getId(i) == viewport.activeId);
+        }
+    }
+
+    /**
+     * Writes the density overview of the obstacles and the robots as dots straight into the pixels of the back buffer
+     */
+    private void renderOverview(Viewport viewport, WorldSnapshot snapshot, Heatmap heatmap, Heatmap.Layer layer) {
+        int[] pixels = ((DataBufferInt) back.getRaster().getDataBuffer()).getData();
+        int width = viewport.width;
+        int height = viewport.height;
+        densityLayer.render(pixels, width, height, viewport.offsetX, viewport.offsetY, viewport.cellSize, viewport.background.getRGB());
+        if (heatmap != null) {
+            blendHeat(pixels, viewport, heatmap, layer);
+        }
+        int dot = Math.max(1, (int) Math.ceil(viewport.cellSize));
+        for (int i = 0; i < snapshot.size(); i++) {
+            int x = viewport.toX(snapshot.getCol(i));
+            int y = viewport.toY(snapshot.getRow(i));
+            if (x + dot <= 0 || x >= width || y + dot <= 0 || y >= height) {
+                continue;
+            }
+            int color = DesignedRobot.colorOf(snapshot.getKind(i)).getRGB();
+            for (int row = Math.max(0, y); row < Math.min(height, y + dot); row++) {
+                for (int col = Math.max(0, x); col < Math.min(width, x + dot); col++) {
+                    pixels[row * width + col] = color;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the heatmap over the visible fields, fields never used by robots stay uncovered
+     */
+    private void renderHeat(Graphics2D g, Viewport viewport, Heatmap heatmap, Heatmap.Layer layer,
+                            int firstRow, int firstCol, int lastRow, int lastCol) {
+        double scale = heatScale(heatmap, layer);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int count = heatmap.get(layer, row, col);
+                if (count > 0) {
+                    int x = viewport.toX(col);
+                    int y = viewport.toY(row);
+                    g.setColor(new Color(DesignedField.heatColor(Math.log1p(count) * scale), true));
+                    g.fillRect(x, y, viewport.toX(col + 1) - x, viewport.toY(row + 1) - y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Blends the heatmap into the pixels of the density overview, a pixel covering several fields shows the highest count
+     */
+    private void blendHeat(int[] pixels, Viewport viewport, Heatmap heatmap, Heatmap.Layer layer) {
+        double scale = heatScale(heatmap, layer);
+        int width = viewport.width;
+        int[] firstCols = new int[width + 1]; // first column of the fields covered by every pixel column
+        for (int x = 0; x <= width; x++) {
+            firstCols[x] = viewport.colAt(x);
+        }
+        for (int y = 0; y < viewport.height; y++) {
+            int firstRow = viewport.rowAt(y);
+            if (firstRow < 0 || firstRow >= heatmap.getRows()) {
+                continue; // outside the map
+            }
+            int endRow = Math.min(heatmap.getRows(), Math.max(firstRow + 1, viewport.rowAt(y + 1)));
+            for (int x = 0; x < width; x++) {
+                if (firstCols[x] < 0 || firstCols[x] >= heatmap.getCols()) {
+                    continue;
+                }
+                int endCol = Math.min(heatmap.getCols(), Math.max(firstCols[x] + 1, firstCols[x + 1]));
+                int count = 0;
+                for (int row = firstRow; row < endRow; row++) {
+                    for (int col = firstCols[x]; col < endCol; col++) {
+                        count = Math.max(count, heatmap.get(layer, row, col));
+                    }
+                }
+                if (count > 0) {
+                    pixels[y * width + x] = blend(pixels[y * width + x], DesignedField.heatColor(Math.log1p(count) * scale));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the factor turning the logarithm of a count into an intensity, so rarely used fields stay visible
+     */
+    private static double heatScale(Heatmap heatmap, Heatmap.Layer layer) {
+        return 1.0 / Math.log1p(Math.max(1, heatmap.getMax(layer)));
+    }
+
+    /**
+     * Lays an ARGB color over an RGB pixel
+     */
+    private static int blend(int pixel, int argb) {
+        int alpha = argb >>> 24;
+        int red = (((argb >> 16) & 0xFF) * alpha + ((pixel >> 16) & 0xFF) * (255 - alpha)) / 255;
+        int green = (((argb >> 8) & 0xFF) * alpha + ((pixel >> 8) & 0xFF) * (255 - alpha)) / 255;
+        int blue = ((argb & 0xFF) * alpha + (pixel & 0xFF) * (255 - alpha)) / 255;
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Draws the preview of an edit which is not applied yet over the map
+     */
+    private void renderSelection(Graphics2D g, Viewport viewport) {
+        Selection selection = viewport.selection;
+        if (selection == null) {
+            return;
+        }
+        g.setColor(selection.erasing ? DesignedField.ERASE_COLOR : DesignedField.PAINT_COLOR);
+        if (selection.stroke == null) {
+            int x = viewport.toX(selection.left);
+            int y = viewport.toY(selection.top);
+            int width = Math.max(1, viewport.toX(selection.right + 1) - x);
+            int height = Math.max(1, viewport.toY(selection.bottom + 1) - y);
+            g.fillRect(x, y, width, height);
+            g.setColor(DesignedField.BORDER_COLOR);
+            g.drawRect(x, y, width - 1, height - 1);
+            return;
+        }
+        for (Position position : selection.stroke) {
+            int x = viewport.toX(position.getCol());
+            int y = viewport.toY(position.getRow());
+            int size = Math.max(1, viewport.toX(position.getCol() + 1) - x);
+            if (x + size > 0 && x < viewport.width && y + size > 0 && y < viewport.height) {
+                g.fillRect(x, y, size, size);
+            }
+        }
+    }
+
+    private void renderField(Graphics2D g, Viewport viewport, Position position, Color color) {
+        int x = viewport.toX(position.getCol());
+        int y = viewport.toY(position.getRow());
+        DesignedField.paintField(g, x, y, viewport.toX(position.getCol() + 1) - x, color, false);
+    }
+
+    /**
+     * Immutable description of the visible part of the map, handed over from the event dispatch thread to the renderer
+     */
+    public static final class Viewport {
+        private final int width;
+        private final int height;
+        private final double offsetX;
+        private final double offsetY;
+        private final double cellSize;
+        private final Position hovered;
+        private final int activeId;
+        private final Color background;
+        private final Selection selection;
+
+        /**
+         * Creates the viewport
+         *
+         * @param width      The width of the view in pixels
+         * @param height     The height of the view in pixels
+         * @param offsetX    The x coordinate of the map shown at the left edge of the view
+         * @param offsetY    The y coordinate of the map shown at the top edge of the view
+         * @param cellSize   The size of one field in pixels
+         * @param hovered    The field under the mouse, or null
+         * @param activeId   The identifier of the active robot, or 0
+         * @param background The color of the view outside the map
+         * @param selection  The preview of an edit in progress, or null
+         */
+        public Viewport(int width, int height, double offsetX, double offsetY, double cellSize, Position hovered, int activeId,
+                        Color background, Selection selection) {
+            this.width = width;
+            this.height = height;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.cellSize = cellSize;
+            this.hovered = hovered;
+            this.activeId = activeId;
+            this.background = background;
+            this.selection = selection;
+        }
+
+        private int toX(int col) {
+            return (int) Math.round(col * cellSize - offsetX);
+        }
+
+        private int toY(int row) {
+            return (int) Math.round(row * cellSize - offsetY);
+        }
+
+        private int rowAt(int y) {
+            return (int) Math.floor((offsetY + y) / cellSize);
+        }
+
+        private int colAt(int x) {
+            return (int) Math.floor((offsetX + x) / cellSize);
+        }
+    }
+
+    /**
+     * Immutable preview of an edit of the obstacles which is not applied yet, either a rectangle or a brush stroke
+     */
+    public static final class Selection {
+        private final int top;
+        private final int left;
+        private final int bottom;
+        private final int right;
+        private final List<Position> stroke; // null for a rectangle
+        private final boolean erasing;
+
+        private Selection(int top, int left, int bottom, int right, List<Position> stroke, boolean erasing) {
+            this.top = top;
+            this.left = left;
+            this.bottom = bottom;
+            this.right = right;
+            this.stroke = stroke;
+            this.erasing = erasing;
+        }
+
+        /**
+         * Creates the preview of a rectangle spanned by two corner fields
+         *
+         * @param from    One corner of the rectangle
+         * @param to      The opposite corner of the rectangle
+         * @param erasing true if the obstacles in the rectangle are going to be removed
+         * @return The preview
+         */
+        public static Selection rectangle(Position from, Position to, boolean erasing) {
+            return new Selection(Math.min(from.getRow(), to.getRow()), Math.min(from.getCol(), to.getCol()),
+                    Math.max(from.getRow(), to.getRow()), Math.max(from.getCol(), to.getCol()), null, erasing);
+        }
+
+        /**
+         * Creates the preview of a brush stroke
+         *
+         * @param fields  The fields covered by the stroke
+         * @param erasing true if the obstacles under the stroke are going to be removed
+         * @return The preview
+         */
+        public static Selection stroke(Collection<Position> fields, boolean erasing) {
+            return new Selection(0, 0, 0, 0, List.copyOf(fields), erasing);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/**
+ * Project: Jednoduchý 2D simulátor mobilních robotů
+ * Author: xpetri23 - Aleksei Petrishko
+ */
+package main.java.view;
+
+import main.java.EnvPresenter;
+import main.java.common.ChangeEvent;
+import main.java.common.ChangeListener;
+import main.java.common.Environment;
+import main.java.common.Position;
+import main.java.common.Robot;
+import main.java.simulation.Heatmap;
+import main.java.simulation.SimulationManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MapView is a single graphical component showing the environment grid through a movable and zoomable viewport.
+ * Frames are drawn by a {@link MapRenderer} on its own thread, the view only copies the finished frame to the screen,
+ * so the user interface stays responsive while a large map is being drawn.
+ * The map is moved by dragging with the right or middle mouse button and zoomed with the mouse wheel.
+ * Dragging with the left button paints obstacles, or erases them if the drag starts on an obstacle,
+ * with Shift held a rectangle is filled or erased. The edit is applied when the button is released.
+ * The view listens to the changes of the environment and asks for a new frame only when a change is visible.
+ * The H key switches the heatmap overlay between the time robots spent on fields, the times they were blocked there, and off.
+ */
+public class MapView extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final double MIN_CELL_SIZE = 0.05;
+    private static final double MAX_CELL_SIZE = 96.0;
+    private static final double ZOOM_STEP = 1.25;
+    private static final Logger logger = LogManager.getLogger(MapView.class);
+
+    private final Environment model;
+    private final EnvPresenter presenter;
+    private final MapRenderer renderer;
+    private final ChangeListener changeListener = this::changed;
+    private double cellSize = 4.0;
+    private double offsetX; // x coordinate of the map shown at the left edge of the view
+    private double offsetY; // y coordinate of the map shown at the top edge of the view
+    private boolean fitted;
+    private Position hovered;
+    private Point panStart;
+    private Position editStart; // field where the left button was pressed
+    private Position editEnd; // field under the mouse while dragging with the left button
+    private boolean editRectangle;
+    private boolean erasing;
+    private boolean editing; // the left button was dragged, so the press is an edit and not a click
+    private final Set<Position> stroke = new LinkedHashSet<>();
+    private volatile MapRenderer.Viewport viewport;
+
+    /**
+     * Constructs a MapView for the given environment.
+     *
+     * @param env       The environment model to show.
+     * @param presenter The presenter managing the environment.
+     */
+    public MapView(Environment env, EnvPresenter presenter) {
+        this.model = env;
+        this.presenter = presenter;
+        this.renderer = new MapRenderer(this, env, SimulationManager.getInstance(env));
+        setBackground(new Color(228, 228, 228));
+        setPreferredSize(new Dimension(1280, 600));
+        setCursor(new Cursor(Cursor.HAND_CURSOR));
+
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (SwingUtilities.isLeftMouseButton(e) && !editing) {
+                    handleMouseClick(e.getPoint());
+                }
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    panStart = e.getPoint();
+                } else {
+                    startEdit(e.getPoint(), e.isShiftDown());
+                }
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (panStart != null) {
+                    pan(panStart.x - e.getX(), panStart.y - e.getY());
+                    panStart = e.getPoint();
+                } else if (editStart != null) {
+                    continueEdit(e.getPoint());
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                panStart = null;
+                if (editStart != null) {
+                    finishEdit();
+                }
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHovered(cellAt(e.getPoint()));
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHovered(null);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getPoint());
+            }
+        };
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
+        env.addChangeListener(changeListener, SwingUtilities::invokeLater);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (!fitted) {
+                    fitToView();
+                } else {
+                    clampOffsets();
+                    refresh();
+                }
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_H, 0), "toggleHeatmap");
+        getActionMap().put("toggleHeatmap", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                toggleHeatmap();
+            }
+        });
+    }
+
+    /**
+     * Switches the heatmap overlay to the next counts: visits, blocked robots, hidden.
+     * The heatmap of the simulation starts counting when it is shown for the first time.
+     */
+    public void toggleHeatmap() {
+        Heatmap.Layer layer = renderer.getHeatmapLayer();
+        Heatmap.Layer next = layer == null ? Heatmap.Layer.VISITS : layer == Heatmap.Layer.VISITS ? Heatmap.Layer.BLOCKED : null;
+        if (next != null) {
+            presenter.getSimulationManager().getHeatmap();
+        }
+        renderer.setHeatmapLayer(next);
+        logger.info("Heatmap overlay: {}", next != null ? next : "hidden");
+        refresh();
+    }
+
+    /**
+     * Zooms the map so that the whole environment fits into the view
+     */
+    public void fitToView() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        fitted = true;
+        cellSize = clampCellSize(Math.min((double) getWidth() / model.getCols(), (double) getHeight() / model.getRows()));
+        clampOffsets();
+        refresh();
+    }
+
+    /**
+     * Changes the size of the fields by the given factor, keeping the field under the anchor point in place
+     *
+     * @param factor The zoom factor, values above 1 zoom in
+     * @param anchor The point of the view which stays in place
+     */
+    public void zoom(double factor, Point anchor) {
+        double newSize = clampCellSize(cellSize * factor);
+        double mapX = (offsetX + anchor.x) / cellSize;
+        double mapY = (offsetY + anchor.y) / cellSize;
+        cellSize = newSize;
+        offsetX = mapX * cellSize - anchor.x;
+        offsetY = mapY * cellSize - anchor.y;
+        clampOffsets();
+        refresh();
+    }
+
+    /**
+     * Moves the visible part of the map by the given number of pixels
+     *
+     * @param dx The horizontal distance in pixels
+     * @param dy The vertical distance in pixels
+     */
+    public void pan(int dx, int dy) {
+        offsetX += dx;
+        offsetY += dy;
+        clampOffsets();
+        refresh();
+    }
+
+    /**
+     * Returns the field under the given point of the view
+     *
+     * @param point The point in the coordinates of the view
+     * @return The position of the field, or null if the point is outside the map
+     */
+    public Position cellAt(Point point) {
+        Position position = new Position((int) Math.floor((offsetY + point.y) / cellSize),
+                (int) Math.floor((offsetX + point.x) / cellSize));
+        return model.containsPosition(position) ? position : null;
+    }
+
+    /**
+     * Asks for a new frame of the map, can be called from any thread.
+     * Called on the event dispatch thread, it also picks up a changed active robot.
+     */
+    public void refresh() {
+        if (SwingUtilities.isEventDispatchThread() || viewport == null) {
+            Robot activeRobot = presenter.getActiveRobot();
+            viewport = new MapRenderer.Viewport(getWidth(), getHeight(), offsetX, offsetY, cellSize, hovered,
+                    activeRobot != null ? activeRobot.getId() : 0, getBackground(), selection());
+        }
+        renderer.request(viewport);
+    }
+
+    /**
+     * Stops the rendering and detaches the view from the environment
+     */
+    public void dispose() {
+        model.removeChangeListener(changeListener);
+        renderer.dispose();
+    }
+
+    /**
+     * Asks for a new frame if one of the changes of the environment lies in the visible part of the map,
+     * called on the event dispatch thread once per batch of changes
+     *
+     * @param events The changes of the environment
+     */
+    private void changed(List<ChangeEvent> events) {
+        if (renderer.getHeatmapLayer() != null) {
+            refresh(); // counts change under robots standing still as well
+            return;
+        }
+        int top = (int) Math.floor(offsetY / cellSize);
+        int left = (int) Math.floor(offsetX / cellSize);
+        int bottom = (int) Math.floor((offsetY + getHeight()) / cellSize);
+        int right = (int) Math.floor((offsetX + getWidth()) / cellSize);
+        for (ChangeEvent event : events) {
+            if (event.intersects(top, left, bottom, right)) {
+                refresh();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Handles the click on a field, the action itself is handled by the view of the field
+     *
+     * @param point The clicked point
+     */
+    private void handleMouseClick(Point point) {
+        Position position = cellAt(point);
+        if (position != null) {
+            new FieldView(model, position, presenter, this).handleMouseClick();
+        }
+    }
+
+    /**
+     * Starts a possible edit at the pressed point, it becomes an edit once the mouse is dragged
+     *
+     * @param point     The pressed point
+     * @param rectangle true to fill a rectangle, false to paint with a brush
+     */
+    private void startEdit(Point point, boolean rectangle) {
+        editStart = cellAt(point);
+        editEnd = editStart;
+        editRectangle = rectangle;
+        erasing = editStart != null && model.obstacleAt(editStart);
+        editing = false;
+        stroke.clear();
+        if (editStart != null) {
+            stroke.add(editStart);
+        }
+    }
+
+    /**
+     * Extends the edit to the field under the point, the brush covers every field on the line from the previous one
+     *
+     * @param point The point the mouse was dragged to
+     */
+    private void continueEdit(Point point) {
+        Position cell = clampedCellAt(point);
+        if (cell.equals(editEnd) && editing) {
+            return;
+        }
+        editing = true;
+        if (!editRectangle) {
+            addStrokeLine(editEnd, cell);
+        }
+        editEnd = cell;
+        refresh();
+    }
+
+    /**
+     * Applies the edit as one operation with one entry in the history and one repaint
+     */
+    private void finishEdit() {
+        if (editing) {
+            int changed = presenter.getSimulationManager().edit(() -> editRectangle
+                    ? model.fillObstacles(Math.min(editStart.getRow(), editEnd.getRow()), Math.min(editStart.getCol(), editEnd.getCol()),
+                            Math.max(editStart.getRow(), editEnd.getRow()), Math.max(editStart.getCol(), editEnd.getCol()), !erasing)
+                    : model.setObstacles(stroke, !erasing));
+            logger.info("Map edit {} {} fields.", erasing ? "cleared" : "filled", changed);
+        }
+        editStart = null;
+        editEnd = null;
+        stroke.clear();
+        refresh();
+    }
+
+    /**
+     * Adds the fields on the line between two fields to the brush stroke
+     */
+    private void addStrokeLine(Position from, Position to) {
+        int row = from.getRow();
+        int col = from.getCol();
+        int rowDistance = Math.abs(to.getRow() - row);
+        int colDistance = -Math.abs(to.getCol() - col);
+        int rowStep = row < to.getRow() ? 1 : -1;
+        int colStep = col < to.getCol() ? 1 : -1;
+        int error = rowDistance + colDistance;
+        while (true) {
+            stroke.add(new Position(row, col));
+            if (row == to.getRow() && col == to.getCol()) {
+                return;
+            }
+            int doubled = 2 * error;
+            if (doubled >= colDistance) {
+                error += colDistance;
+                row += rowStep;
+            }
+            if (doubled <= rowDistance) {
+                error += rowDistance;
+                col += colStep;
+            }
+        }
+    }
+
+    /**
+     * Returns the preview of the edit in progress
+     *
+     * @return The preview, or null if no edit is in progress
+     */
+    private MapRenderer.Selection selection() {
+        if (editStart == null || !editing) {
+            return null;
+        }
+        return editRectangle ? MapRenderer.Selection.rectangle(editStart, editEnd, erasing) : MapRenderer.Selection.stroke(stroke, erasing);
+    }
+
+    /**
+     * Returns the field under the point, points outside the map give the nearest field at its edge
+     */
+    private Position clampedCellAt(Point point) {
+        int row = (int) Math.floor((offsetY + point.y) / cellSize);
+        int col = (int) Math.floor((offsetX + point.x) / cellSize);
+        return new Position(Math.max(0, Math.min(model.getRows() - 1, row)), Math.max(0, Math.min(model.getCols() - 1, col)));
+    }
+
+    /**
+     * Copies the last frame drawn by the renderer
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        renderer.paintFrame(g);
+    }
+
+    private void setHovered(Position position) {
+        if (position == null ? hovered == null : position.equals(hovered)) {
+            return;
+        }
+        hovered = position;
+        refresh();
+    }
+
+    /**
+     * Keeps the map inside the view, a map smaller than the view is centered
+     */
+    private void clampOffsets() {
+        offsetX = clampOffset(offsetX, model.getCols() * cellSize, getWidth());
+        offsetY = clampOffset(offsetY, model.getRows() * cellSize, getHeight());
+    }
+
+    private static double clampOffset(double offset, double mapSize, int viewSize) {
+        if (mapSize <= viewSize) {
+            return (mapSize - viewSize) / 2.0;
+        }
+        return Math.max(0, Math.min(offset, mapSize - viewSize));
+    }
+
+    private static double clampCellSize(double size) {
+        return Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+    }
+}
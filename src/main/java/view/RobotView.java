@@ -5,7 +5,6 @@
 package main.java.view;
 
 import main.java.EnvPresenter;
-import main.java.common.Observable;
 import main.java.common.Robot;
 import main.java.design.DesignedRobot;
 
@@ -13,17 +12,15 @@ import java.awt.*;
 
 /**
  * A graphical view representation of a robot.
- * This class observes changes in the robot's state and updates the GUI accordingly.
+ * Changes of the robot reach the map as change events of the environment, so the view does not observe the robot.
  */
-public class RobotView implements ComponentView, Observable.Observer {
+public class RobotView implements ComponentView {
     private final Robot model;
     private final EnvPresenter parent;
-    private FieldView current;
     private final DesignedRobot designedRobot;
 
     /**
      * Constructs a RobotView for the given robot and environment presenter.
-     * Adds this view as an observer of the robot to track state changes.
      *
      * @param var1 The environment presenter to which this view belongs.
      * @param var2 The robot model being represented.
@@ -31,46 +28,30 @@ public class RobotView implements ComponentView, Observable.Observer {
     public RobotView(EnvPresenter var1, Robot var2) {
         this.model = var2;
         this.parent = var1;
-        var2.addObserver(this);
         this.privUpdate();
 
         this.designedRobot = new DesignedRobot(model);
     }
 
     /**
-     * Updates the graphical view of the robot based on its current position.
+     * Asks the map for a new frame showing the current state of the robot.
      */
     private void privUpdate() {
-        FieldView field = this.parent.fieldAt(this.model.getPosition());
-        if (this.current != null) {
-            this.current.removeComponent();
-            this.current.repaint();
-        }
-
-        this.current = field;
-        if (field != null) {
-            field.addComponent(this);
-            field.repaint();
+        MapView map = this.parent.getMapView();
+        if (map != null) {
+            map.refresh();
         }
     }
 
     /**
-     * Updates the view in response to changes in the observed robot's state.
-     *
-     * @param var1 The observable object notifying of the change.
-     */
-    public final void update(Observable var1) {
-        this.privUpdate();
-    }
-
-    /**
-     * Paints the graphical representation of the robot onto the given Graphics context.
+     * Paints the graphical representation of the robot onto the given Graphics context,
+     * filling the area of its clip bounds.
      *
      * @param g The Graphics context to draw on.
      */
     public void paintComponent(Graphics g) {
-        if (this.current != null) {
-            Rectangle bounds = this.current.getBounds();
+        Rectangle bounds = g.getClipBounds();
+        if (bounds != null) {
             this.designedRobot.paintComponent(g, bounds.width, bounds.height, this.parent.isActive(this.model));
         }
     }
@@ -91,4 +72,3 @@ public class RobotView implements ComponentView, Observable.Observer {
         this.privUpdate();
     }
 }
-